@@ -1,6 +1,7 @@
 plugins {
     id("java")
     id("application")
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "io.github.devops"
@@ -8,6 +9,8 @@ version = "1.0-SNAPSHOT"
 
 application {
     mainClass.set("io.github.devops.Main")
+    // AppCDS 归档由 cdsArchive 生成；文件不存在或与类路径不匹配时 JVM 忽略该参数正常启动
+    applicationDefaultJvmArgs = listOf("-XX:SharedArchiveFile=__APP_HOME__/lib/${project.name}.jsa", "-Xshare:auto")
 }
 
 repositories {
@@ -26,4 +29,84 @@ dependencies {
 
 tasks.test {
     useJUnitPlatform()
+}
+
+// 负载测试：基于本地模拟 Kibana 的端到端吞吐量测试，不依赖真实环境
+sourceSets {
+    create("loadtest") {
+        compileClasspath += sourceSets.main.get().output
+        runtimeClasspath += sourceSets.main.get().output
+    }
+}
+
+configurations["loadtestImplementation"].extendsFrom(configurations.implementation.get())
+configurations["loadtestRuntimeOnly"].extendsFrom(configurations.runtimeOnly.get())
+
+tasks.register<JavaExec>("loadTest") {
+    description = "Runs the provisioning throughput suite against the in-process fake Kibana."
+    group = "verification"
+    classpath = sourceSets["loadtest"].runtimeClasspath
+    mainClass.set("io.github.devops.ProvisioningLoadTest")
+    (project.findProperty("loadTestScenario") as String?)?.let { args(it) }
+}
+
+// 基准测试：./gradlew jmh，结果写入 build/results/jmh/results.json
+jmh {
+    jmhVersion.set("1.37")
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    (project.findProperty("jmhIncludes") as String?)?.let { includes.add(it) }
+}
+
+// 启动脚本中的 __APP_HOME__ 替换为运行时的安装目录
+tasks.startScripts {
+    doLast {
+        unixScript.writeText(unixScript.readText().replace("__APP_HOME__", "'\"\$APP_HOME\"'"))
+        windowsScript.writeText(windowsScript.readText().replace("__APP_HOME__", "%APP_HOME%"))
+    }
+}
+
+// installDist 会同步删除目标目录中多余的文件，保留已生成的归档
+tasks.installDist {
+    preserve {
+        include("lib/*.jsa")
+    }
+}
+
+val installDir = layout.buildDirectory.dir("install/${project.name}")
+val cdsArchivePath = installDir.map { it.file("lib/${project.name}.jsa").asFile.canonicalPath }
+
+// 与启动脚本完全相同的类路径（同一顺序、同一绝对路径），否则 JVM 拒绝使用归档
+val installedClasspath = installDir.map { dir ->
+    tasks.startScripts.get().classpath!!.files.joinToString(File.pathSeparator) {
+        dir.file("lib/${it.name}").asFile.canonicalPath
+    }
+}
+
+// AppCDS：针对模拟 Kibana 做一次训练运行，把加载过的类转储到安装目录的 lib 下
+tasks.register<JavaExec>("cdsArchive") {
+    description = "Creates an AppCDS archive for the installed distribution from a training run."
+    group = "distribution"
+    dependsOn(tasks.installDist)
+    classpath = sourceSets["loadtest"].runtimeClasspath
+    mainClass.set("io.github.devops.StartupBenchmark")
+    argumentProviders.add(CommandLineArgumentProvider {
+        listOf("--train", installedClasspath.get(), cdsArchivePath.get())
+    })
+}
+
+// 启动基准：分别在无归档和有归档时测量从启动 JVM 到发出第一个请求的时间
+tasks.register<JavaExec>("startupBenchmark") {
+    description = "Measures time-to-first-request of the installed distribution with and without AppCDS."
+    group = "verification"
+    dependsOn(tasks.installDist)
+    mustRunAfter("cdsArchive")
+    classpath = sourceSets["loadtest"].runtimeClasspath
+    mainClass.set("io.github.devops.StartupBenchmark")
+    argumentProviders.add(CommandLineArgumentProvider {
+        listOf(installedClasspath.get(), cdsArchivePath.get())
+    })
 }
\ No newline at end of file
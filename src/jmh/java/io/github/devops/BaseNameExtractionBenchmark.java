@@ -0,0 +1,63 @@
+package io.github.devops;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Date suffix stripping throughput, per name and for the deduplicating pass of
+ * extractBaseNames() over the whole list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BaseNameExtractionBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    private List<String> indices;
+    private String[] names;
+    private int cursor;
+    private BaseNameExtractor extractor;
+
+    @Setup
+    public void setup() {
+        indices = IndexNameGenerator.generate(size, 100, 42);
+        names = indices.toArray(new String[0]);
+        extractor = BaseNameExtractor.defaults();
+    }
+
+    @Benchmark
+    public String extract() {
+        String name = names[cursor];
+        cursor = cursor + 1 == names.length ? 0 : cursor + 1;
+        return extractor.extract(name);
+    }
+
+    /**
+     * Strip and deduplicate the whole list, as extractBaseNames() does without its output
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Set<String> extractBaseNames() {
+        Set<String> baseNames = new HashSet<>();
+        for (String index : indices) {
+            String baseName = extractor.extract(index);
+            if (!baseName.isEmpty()) {
+                baseNames.add(baseName);
+            }
+        }
+        return baseNames;
+    }
+}
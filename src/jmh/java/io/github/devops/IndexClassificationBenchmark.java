@@ -0,0 +1,93 @@
+package io.github.devops;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Index classification throughput: the per-project matcher used by
+ * getConfigBasedIndices()/getProjectIndices() and the fleet mode router.
+ *
+ * The per-name benchmarks cycle through the generated names, so their score is
+ * names per second; run with {@code -prof gc} for the allocation rate per name.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class IndexClassificationBenchmark {
+    private static final int TENANTS = 100;
+
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    private List<String> indices;
+    private String[] names;
+    private int cursor;
+    private IndexMatcher configMatcher;
+    private IndexMatcher projectMatcher;
+    private IndexRouter<String> router;
+
+    @Setup
+    public void setup() {
+        indices = IndexNameGenerator.generate(size, TENANTS, 42);
+        names = indices.toArray(new String[0]);
+
+        KibanaConfig.IndexMatchingSettings settings = new KibanaConfig.IndexMatchingSettings();
+        settings.setProjectPatterns(List.of(".*p007.*"));
+        settings.setEnvironmentPatterns(List.of(".*prod.*"));
+        settings.setDatePatterns(List.of(".*\\d{4}\\.\\d{2}\\.\\d{2}.*"));
+        settings.setCustomPatterns(List.of(".*audit.*"));
+        settings.setExcludePatterns(List.of("\\..*"));
+        configMatcher = IndexMatcher.fromSettings(settings);
+
+        projectMatcher = IndexMatcher.forProject("p007", "prod");
+
+        Map<String, IndexMatcher> matchers = new LinkedHashMap<>();
+        for (int i = 0; i < TENANTS; i++) {
+            matchers.put(IndexNameGenerator.tenant(i) + "-prod", IndexMatcher.forProject(IndexNameGenerator.tenant(i), "prod"));
+        }
+        router = new IndexRouter<>(matchers);
+    }
+
+    private String next() {
+        String name = names[cursor];
+        cursor = cursor + 1 == names.length ? 0 : cursor + 1;
+        return name;
+    }
+
+    @Benchmark
+    public int classifyConfigPatterns() {
+        return configMatcher.classify(next());
+    }
+
+    @Benchmark
+    public int classifyProjectPatterns() {
+        return projectMatcher.classify(next());
+    }
+
+    @Benchmark
+    public void routeFleet(Blackhole blackhole) {
+        router.route(next(), blackhole::consume);
+    }
+
+    /**
+     * Classify the whole list into typed result lists, as getConfigBasedIndices() does
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public IndexMatchResult classifyAll() {
+        return configMatcher.classifyAll(indices);
+    }
+}
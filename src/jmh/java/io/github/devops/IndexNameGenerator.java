@@ -0,0 +1,71 @@
+package io.github.devops;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates realistic synthetic index names for benchmarks.
+ *
+ * Names mix many tenants and environments with the date suffix styles seen in
+ * practice (daily, rollover, data stream backing indices, undated), plus a share
+ * of system indices. The same seed always yields the same names.
+ */
+public final class IndexNameGenerator {
+    private static final String[] ENVIRONMENTS = {"prod", "uat", "dev", "test"};
+    private static final String[] COMPONENTS = {"app", "nginx", "gateway", "worker", "audit", "metrics", "api", "job"};
+    private static final String[] SYSTEM_INDICES = {
+            ".kibana_8.11.0_001", ".kibana_task_manager_8.11.0_001", ".security-7", ".apm-agent-configuration",
+            ".monitoring-es-7-2024.01.01", ".tasks", ".async-search"
+    };
+
+    private IndexNameGenerator() {
+    }
+
+    /**
+     * Name of the i-th tenant, e.g. p007
+     */
+    public static String tenant(int i) {
+        return String.format("p%03d", i);
+    }
+
+    /**
+     * Generate index names spread over the given number of tenants
+     */
+    public static List<String> generate(int count, int tenants, long seed) {
+        Random random = new Random(seed);
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (random.nextInt(50) == 0) {
+                names.add(SYSTEM_INDICES[random.nextInt(SYSTEM_INDICES.length)]);
+                continue;
+            }
+            String base = tenant(random.nextInt(tenants)) + "-" + ENVIRONMENTS[random.nextInt(ENVIRONMENTS.length)]
+                    + "-" + COMPONENTS[random.nextInt(COMPONENTS.length)];
+            int year = 2023 + random.nextInt(2);
+            int month = 1 + random.nextInt(12);
+            int day = 1 + random.nextInt(28);
+            switch (random.nextInt(6)) {
+                case 0:
+                    names.add(String.format("%s-%04d.%02d.%02d", base, year, month, day));
+                    break;
+                case 1:
+                    names.add(String.format("%s-%04d.%02d.%02d-%06d", base, year, month, day, 1 + random.nextInt(20)));
+                    break;
+                case 2:
+                    names.add(String.format("%s_%04d-%02d-%02d", base, year, month, day));
+                    break;
+                case 3:
+                    names.add(String.format(".ds-logs-%s-%04d.%02d.%02d-%06d", base, year, month, day, 1 + random.nextInt(20)));
+                    break;
+                case 4:
+                    names.add(String.format("%s%04d.%02d.%02d", base.toUpperCase(), year, month, day));
+                    break;
+                default:
+                    names.add(base);
+                    break;
+            }
+        }
+        return names;
+    }
+}
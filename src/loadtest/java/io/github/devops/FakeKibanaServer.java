@@ -0,0 +1,449 @@
+package io.github.devops;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * In-process stand-in for Kibana, built on the JDK {@link HttpServer}.
+ *
+ * Implements the endpoints {@link KibanaUtils} calls with in-memory spaces, data
+ * views, roles and users, plus Elasticsearch's {@code _cat/indices}, both directly
+ * and through the Kibana console proxy. Latency, error injection, a concurrency cap answered
+ * with 429 and the number of indices are configurable, so provisioning can be
+ * load tested locally without touching a real Kibana.
+ */
+public class FakeKibanaServer implements AutoCloseable {
+    private static final String[] ENVIRONMENTS = {"prod", "uat", "dev", "test"};
+    private static final int MAX_SEARCH_LIMIT = 10_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Set<String> spaces = ConcurrentHashMap.newKeySet();
+    private final Map<String, Map<String, String>> dataViews = new ConcurrentHashMap<>();
+    private final Set<String> roles = ConcurrentHashMap.newKeySet();
+    private final Set<String> users = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong firstRequestNanos = new AtomicLong();
+
+    private volatile List<String> indices = Collections.emptyList();
+    private volatile long latencyMillis;
+    private volatile long latencyJitterMillis;
+    private volatile double errorRate;
+    private volatile int errorStatus = 503;
+    private volatile int maxConcurrentRequests = Integer.MAX_VALUE;
+    private volatile int retryAfterSeconds = 1;
+    private volatile String version = "8.11.0";
+
+    public FakeKibanaServer() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.executor = Executors.newFixedThreadPool(64, runnable -> {
+            Thread thread = new Thread(runnable, "fake-kibana");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public FakeKibanaServer start() {
+        server.start();
+        return this;
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Delay every response by the given latency plus a uniformly random jitter
+     */
+    public FakeKibanaServer setLatency(long latencyMillis, long jitterMillis) {
+        this.latencyMillis = latencyMillis;
+        this.latencyJitterMillis = jitterMillis;
+        return this;
+    }
+
+    /**
+     * Fail the given fraction of requests with the given status
+     */
+    public FakeKibanaServer setErrorRate(double errorRate, int errorStatus) {
+        this.errorRate = errorRate;
+        this.errorStatus = errorStatus;
+        return this;
+    }
+
+    /**
+     * Answer requests beyond the given concurrency with 429 and a Retry-After header
+     */
+    public FakeKibanaServer setMaxConcurrentRequests(int maxConcurrentRequests, int retryAfterSeconds) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.retryAfterSeconds = retryAfterSeconds;
+        return this;
+    }
+
+    public FakeKibanaServer setVersion(String version) {
+        this.version = version;
+        return this;
+    }
+
+    public FakeKibanaServer setIndices(List<String> indices) {
+        this.indices = List.copyOf(indices);
+        return this;
+    }
+
+    /**
+     * Generate daily indices for the given number of tenants across all environments,
+     * e.g. {@code p003-prod-svc17-2024.01.05}
+     */
+    public FakeKibanaServer generateIndices(int count, int tenants, int servicesPerTenant, long seed) {
+        Random random = new Random(seed);
+        List<String> generated = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String base = String.format("p%03d-%s-svc%d", random.nextInt(tenants),
+                    ENVIRONMENTS[random.nextInt(ENVIRONMENTS.length)], random.nextInt(servicesPerTenant));
+            String date = String.format("%04d.%02d.%02d", 2024, 1 + random.nextInt(12), 1 + random.nextInt(28));
+            generated.add(random.nextBoolean() ? base + "-" + date : base + "-" + date + "-00000" + (1 + random.nextInt(9)));
+        }
+        this.indices = generated;
+        return this;
+    }
+
+    /**
+     * Pre-populate a space with stale data views that provisioning should clean up
+     */
+    public FakeKibanaServer seedDataViews(String space, int count) {
+        Map<String, String> views = dataViews.computeIfAbsent(space, key -> new ConcurrentHashMap<>());
+        for (int i = 0; i < count; i++) {
+            views.put("stale-" + i, "stale-" + i + "*");
+        }
+        return this;
+    }
+
+    /**
+     * Number of data views currently stored in a space
+     */
+    public int getDataViewCount(String space) {
+        return dataViews.getOrDefault(space, Collections.emptyMap()).size();
+    }
+
+    public boolean hasSpace(String space) {
+        return spaces.contains(space);
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * {@link System#nanoTime()} at which the first request since the last reset arrived, 0 if none did
+     */
+    public long getFirstRequestNanos() {
+        return firstRequestNanos.get();
+    }
+
+    public void resetFirstRequest() {
+        firstRequestNanos.set(0);
+    }
+
+    /**
+     * Number of requests answered with 429 because of the concurrency cap
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        firstRequestNanos.compareAndSet(0, System.nanoTime());
+        requests.incrementAndGet();
+        try {
+            if (active.incrementAndGet() > maxConcurrentRequests) {
+                rejected.incrementAndGet();
+                exchange.getResponseHeaders().add("Retry-After", String.valueOf(retryAfterSeconds));
+                respond(exchange, 429, "{\"statusCode\":429,\"error\":\"Too Many Requests\"}");
+                return;
+            }
+            simulateLatency();
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                respond(exchange, errorStatus, "{\"statusCode\":" + errorStatus + ",\"error\":\"Injected failure\"}");
+                return;
+            }
+            route(exchange);
+        } catch (RuntimeException e) {
+            respond(exchange, 500, "{\"statusCode\":500,\"error\":\"" + e.getMessage() + "\"}");
+        } finally {
+            active.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    private void simulateLatency() {
+        long delay = latencyMillis + (latencyJitterMillis > 0 ? ThreadLocalRandom.current().nextLong(latencyJitterMillis + 1) : 0);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        String query = exchange.getRequestURI().getQuery();
+
+        if (path.equals("/api/status")) {
+            respond(exchange, 200, "{\"version\":{\"number\":\"" + version + "\"}}");
+        } else if (path.equals("/api/index_management/indices")) {
+            streamIndices(exchange);
+        } else if (path.startsWith("/_cat/indices")) {
+            String rawPath = exchange.getRequestURI().getRawPath();
+            catIndices(exchange, URLDecoder.decode(rawPath.substring("/_cat/indices".length()).replaceFirst("^/", ""), StandardCharsets.UTF_8),
+                    query);
+        } else if (path.equals("/api/console/proxy") && method.equals("POST")) {
+            proxyToElasticsearch(exchange);
+        } else if (path.equals("/api/spaces/space") && method.equals("POST")) {
+            String id = readJson(exchange).path("id").asText();
+            respond(exchange, spaces.add(id) ? 200 : 409, "{\"id\":\"" + id + "\"}");
+        } else if (path.startsWith("/api/spaces/space/")) {
+            String id = path.substring("/api/spaces/space/".length());
+            respond(exchange, spaces.contains(id) ? 200 : 404, "{\"id\":\"" + id + "\"}");
+        } else if (path.startsWith("/api/security/role/")) {
+            String name = path.substring("/api/security/role/".length());
+            boolean createOnly = query != null && query.contains("createOnly=true");
+            respond(exchange, roles.add(name) || !createOnly ? 204 : 409, "");
+        } else if (path.startsWith("/internal/security/users/")) {
+            users.add(path.substring("/internal/security/users/".length()));
+            respond(exchange, 200, "{}");
+        } else if (path.startsWith("/s/")) {
+            int end = path.indexOf('/', 3);
+            routeSpace(exchange, path.substring(3, end), path.substring(end));
+        } else {
+            respond(exchange, 404, "{\"statusCode\":404,\"error\":\"Not Found\"}");
+        }
+    }
+
+    private void routeSpace(HttpExchange exchange, String space, String path) throws IOException {
+        Map<String, String> views = dataViews.computeIfAbsent(space, key -> new ConcurrentHashMap<>());
+
+        if (path.equals("/api/content_management/rpc/search")) {
+            searchDataViews(exchange, views);
+        } else if (path.equals("/api/content_management/rpc/create")) {
+            JsonNode body = readJson(exchange);
+            String id = body.path("options").path("id").asText();
+            String title = body.path("data").path("title").asText();
+            if (body.path("options").path("overwrite").asBoolean()) {
+                views.put(id, title);
+                respond(exchange, 200, "{}");
+            } else {
+                respond(exchange, views.putIfAbsent(id, title) == null ? 200 : 409, "{}");
+            }
+        } else if (path.equals("/api/content_management/rpc/delete")) {
+            String id = readJson(exchange).path("id").asText();
+            respond(exchange, views.remove(id) != null ? 200 : 404, "{}");
+        } else if (path.equals("/api/saved_objects/_import")) {
+            importDataViews(exchange, views);
+        } else if (path.equals("/api/saved_objects/_bulk_delete")) {
+            ObjectNode response = objectMapper.createObjectNode();
+            ArrayNode statuses = response.putArray("statuses");
+            for (JsonNode object : readJson(exchange)) {
+                String id = object.path("id").asText();
+                statuses.addObject().put("id", id).put("success", views.remove(id) != null);
+            }
+            respond(exchange, 200, objectMapper.writeValueAsString(response));
+        } else {
+            respond(exchange, 404, "{\"statusCode\":404,\"error\":\"Not Found\"}");
+        }
+    }
+
+    /**
+     * Import the index-pattern lines of a multipart NDJSON upload; without overwrite,
+     * existing ids are reported as conflicts like Kibana does
+     */
+    private void importDataViews(HttpExchange exchange, Map<String, String> views) throws IOException {
+        boolean overwrite = String.valueOf(exchange.getRequestURI().getQuery()).contains("overwrite=true");
+        ObjectNode response = objectMapper.createObjectNode();
+        ArrayNode successResults = response.putArray("successResults");
+        ArrayNode errors = response.putArray("errors");
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        for (String line : body.split("\r?\n")) {
+            if (!line.startsWith("{")) {
+                // multipart 边界和分段头
+                continue;
+            }
+            JsonNode object = objectMapper.readTree(line);
+            String id = object.path("id").asText();
+            String title = object.path("attributes").path("title").asText();
+            if (overwrite || views.putIfAbsent(id, title) == null) {
+                views.put(id, title);
+                successResults.addObject().put("type", "index-pattern").put("id", id);
+            } else {
+                errors.addObject().put("type", "index-pattern").put("id", id)
+                        .putObject("error").put("type", "conflict");
+            }
+        }
+        response.put("success", errors.isEmpty());
+        response.put("successCount", successResults.size());
+        respond(exchange, 200, objectMapper.writeValueAsString(response));
+    }
+
+    /**
+     * Answer one page of data views; like Kibana, a page holds at most 10,000 hits, the
+     * cursor is read as a 1-based page number and the pagination only reports the total
+     */
+    private void searchDataViews(HttpExchange exchange, Map<String, String> views) throws IOException {
+        JsonNode query = readJson(exchange).path("query");
+        int limit = Math.min(query.path("limit").asInt(20), MAX_SEARCH_LIMIT);
+        int page = query.hasNonNull("cursor") ? Integer.parseInt(query.get("cursor").asText()) : 1;
+
+        List<String> ids = new ArrayList<>(views.keySet());
+        Collections.sort(ids);
+        int from = Math.min(ids.size(), (page - 1) * limit);
+        int to = Math.min(ids.size(), from + limit);
+
+        ObjectNode response = objectMapper.createObjectNode();
+        ObjectNode result = response.putObject("result").putObject("result");
+        ArrayNode hits = result.putArray("hits");
+        for (String id : ids.subList(from, to)) {
+            ObjectNode hit = hits.addObject();
+            hit.put("id", id);
+            hit.putObject("attributes").put("title", views.getOrDefault(id, ""));
+        }
+        ObjectNode pagination = result.putObject("pagination");
+        pagination.put("total", ids.size());
+        respond(exchange, 200, objectMapper.writeValueAsString(response));
+    }
+
+    /**
+     * Stream the index list with chunked encoding, as a large real response would arrive
+     */
+    private void streamIndices(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream outputStream = exchange.getResponseBody();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.writeStartArray();
+            for (String index : indices) {
+                generator.writeStartObject();
+                generator.writeStringField("name", index);
+                generator.writeStringField("health", "green");
+                generator.writeStringField("status", "open");
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * Forward a console proxy request; only _cat/indices is supported
+     */
+    private void proxyToElasticsearch(HttpExchange exchange) throws IOException {
+        String target = null;
+        String rawQuery = exchange.getRequestURI().getRawQuery();
+        for (String parameter : rawQuery != null ? rawQuery.split("&") : new String[0]) {
+            if (parameter.startsWith("path=")) {
+                target = URLDecoder.decode(parameter.substring("path=".length()), StandardCharsets.UTF_8);
+            }
+        }
+        if (target == null || !target.startsWith("_cat/indices")) {
+            respond(exchange, 400, "{\"statusCode\":400,\"error\":\"Unsupported proxy path\"}");
+            return;
+        }
+        String expression = target.substring("_cat/indices".length()).replaceFirst("^/", "");
+        int query = expression.indexOf('?');
+        catIndices(exchange, URLDecoder.decode(query >= 0 ? expression.substring(0, query) : expression, StandardCharsets.UTF_8),
+                query >= 0 ? expression.substring(query + 1) : null);
+    }
+
+    /**
+     * Answer _cat/indices?h=index&format=json for a comma-separated wildcard expression; like
+     * Elasticsearch, a concrete index name that does not exist is a 404 unless
+     * ignore_unavailable=true
+     */
+    private void catIndices(HttpExchange exchange, String expression, String query) throws IOException {
+        boolean ignoreUnavailable = query != null && Arrays.asList(query.split("&")).contains("ignore_unavailable=true");
+        List<Pattern> patterns = new ArrayList<>();
+        for (String wildcard : (expression.isEmpty() ? "*" : expression).split(",")) {
+            if (!ignoreUnavailable && wildcard.indexOf('*') < 0 && !indices.contains(wildcard)) {
+                respond(exchange, 404, "{\"error\":{\"type\":\"index_not_found_exception\",\"index\":\"" + wildcard
+                        + "\"},\"status\":404}");
+                return;
+            }
+            StringBuilder regex = new StringBuilder();
+            for (String literal : wildcard.split("\\*", -1)) {
+                if (regex.length() > 0) {
+                    regex.append(".*");
+                }
+                regex.append(Pattern.quote(literal));
+            }
+            patterns.add(Pattern.compile(regex.toString()));
+        }
+
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream outputStream = exchange.getResponseBody();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.writeStartArray();
+            for (String index : indices) {
+                for (Pattern pattern : patterns) {
+                    if (pattern.matcher(index).matches()) {
+                        generator.writeStartObject();
+                        generator.writeStringField("index", index);
+                        generator.writeEndObject();
+                        break;
+                    }
+                }
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private JsonNode readJson(HttpExchange exchange) throws IOException {
+        return objectMapper.readTree(exchange.getRequestBody());
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(bytes);
+            }
+        }
+    }
+}
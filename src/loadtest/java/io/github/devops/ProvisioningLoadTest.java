@@ -0,0 +1,238 @@
+package io.github.devops;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * End-to-end provisioning throughput suite against {@link FakeKibanaServer}.
+ *
+ * Each scenario provisions one or more projects through the real {@link KibanaUtils}
+ * / {@link FleetProvisioner} code paths, checks that every expected data view, role
+ * and user exists on the fake server, and reports the throughput together with the
+ * metrics of the run. Run with {@code ./gradlew loadTest}, optionally
+ * {@code -PloadTestScenario=<name>}; the process exits with 1 if a scenario fails.
+ */
+public class ProvisioningLoadTest {
+    private static final Path OUTPUT_DIR = Paths.get("build", "loadtest");
+    private static final int TENANTS = 20;
+    private static final int SERVICES_PER_TENANT = 200;
+
+    private final PrintStream out = System.out;
+    private final List<String> failures = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        ProvisioningLoadTest loadTest = new ProvisioningLoadTest();
+        String only = args.length > 0 ? args[0] : null;
+
+        Map<String, Scenario> scenarios = new LinkedHashMap<>();
+        // 预热 JIT、TLS 和连接池，避免冷启动开销计入第一个场景
+        scenarios.put("warm-up", new Scenario(2_000, 1, server -> {}));
+        scenarios.put("baseline", new Scenario(10_000, 1, server -> {}));
+        scenarios.put("latency", new Scenario(10_000, 1, server -> server.setLatency(20, 10)));
+        scenarios.put("errors", new Scenario(10_000, 1, server -> server.setErrorRate(0.05, 503)));
+        scenarios.put("throttled", new Scenario(10_000, 1, server -> server.setLatency(5, 5).setMaxConcurrentRequests(4, 1)));
+        // 空间中已有超过单页上限的过期视图，需要翻页读取才能全部清理
+        scenarios.put("stale", new Scenario(10_000, 1, server -> server.seedDataViews("p000-prod", 25_000)));
+        // 通过 saved objects _import 分块流式上传，代替逐个创建
+        scenarios.put("import", new Scenario(10_000, 1, server -> server.setLatency(5, 5),
+                settings -> settings.setDataViewCreateMode("import")));
+        // 流式流水线：边解析索引列表边分类、去后缀并发起创建
+        scenarios.put("stream", new Scenario(100_000, 1, server -> server.setLatency(5, 5),
+                settings -> settings.setStreamDataViews(true)));
+        scenarios.put("phased", new Scenario(100_000, 1, server -> server.setLatency(5, 5)));
+        scenarios.put("scale", new Scenario(200_000, 1, server -> server.setLatency(5, 5)));
+        // 索引列表由 Elasticsearch 在服务端按通配符过滤，分别经 Kibana 代理和直连
+        scenarios.put("es-proxy", new Scenario(100_000, 1, server -> {}, settings -> settings.setIndexSource("elasticsearch")));
+        scenarios.put("es-direct", new Scenario(100_000, 1, server -> {}, settings -> settings.setIndexSource("elasticsearch"))
+                .directElasticsearch());
+        scenarios.put("fleet", new Scenario(100_000, TENANTS, server -> server.setLatency(10, 10)));
+
+        for (Map.Entry<String, Scenario> entry : scenarios.entrySet()) {
+            if (only == null || only.equals(entry.getKey()) || entry.getKey().equals("warm-up")) {
+                loadTest.run(entry.getKey(), entry.getValue());
+            }
+        }
+
+        if (!loadTest.failures.isEmpty()) {
+            loadTest.out.println("\n❌ " + loadTest.failures.size() + " scenario(s) failed:");
+            loadTest.failures.forEach(failure -> loadTest.out.println("  ❌ " + failure));
+            System.exit(1);
+        }
+        loadTest.out.println("\n✅ All load test scenarios passed");
+    }
+
+    private void run(String name, Scenario scenario) throws Exception {
+        try (FakeKibanaServer server = new FakeKibanaServer().start()) {
+            server.generateIndices(scenario.indexCount, TENANTS, SERVICES_PER_TENANT, 42);
+            scenario.setup.accept(server);
+
+            KibanaConfig config = createConfig(server, name, scenario.projects);
+            scenario.settings.accept(config.getSettings());
+            if (scenario.directElasticsearch) {
+                KibanaConfig.ElasticsearchSettings elasticsearch = new KibanaConfig.ElasticsearchSettings();
+                elasticsearch.setBaseUrl(server.getBaseUrl());
+                config.setElasticsearch(elasticsearch);
+            }
+            List<String> problems = new ArrayList<>();
+            long start = System.nanoTime();
+            // 被测代码的逐条输出会淹没结果，运行期间暂时屏蔽
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            try {
+                if (provision(config)) {
+                    problems.add("provisioning reported failures");
+                }
+            } catch (Exception e) {
+                problems.add("provisioning failed: " + e.getMessage());
+            } finally {
+                System.setOut(out);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long requestCount = server.getRequestCount();
+
+            // 校验时关闭故障注入
+            server.setErrorRate(0, 503).setMaxConcurrentRequests(Integer.MAX_VALUE, 0).setLatency(0, 0);
+            int expected = 0;
+            int created = 0;
+            for (KibanaConfig.ProjectSettings project : projectsOf(config)) {
+                String space = (project.getName() + "-" + project.getEnvironment()).toLowerCase();
+                int wanted = expectedDataViews(server, project);
+                int actual = server.getDataViewCount(space);
+                expected += wanted;
+                created += actual;
+                if (actual != wanted) {
+                    problems.add(space + ": expected " + wanted + " data views, found " + actual);
+                }
+                if (!server.hasSpace(space)) {
+                    problems.add(space + ": space missing");
+                }
+            }
+
+            out.printf("%-10s %8d indices %4d projects %6d data views %8.2f s %8.1f views/s %7d requests %6d throttled%n",
+                    name, scenario.indexCount, scenario.projects, created, seconds, created / seconds,
+                    requestCount, server.getRejectedCount());
+            if (!problems.isEmpty()) {
+                failures.add(name + ": " + String.join("; ", problems));
+            }
+            if (expected == 0) {
+                failures.add(name + ": no data views expected, check the index generator");
+            }
+        }
+    }
+
+    /**
+     * Provision through the same entry points as Main; returns whether any operation failed
+     */
+    private boolean provision(KibanaConfig config) throws Exception {
+        if (config.isFleetMode()) {
+            return new FleetProvisioner(config).run().hasFailures();
+        }
+        try (Reporter reporter = Reporter.fromSettings(config.getSettings())) {
+            ProvisioningReport report = Main.runProject(config, reporter);
+            return report != null && report.hasFailures();
+        }
+    }
+
+    private KibanaConfig createConfig(FakeKibanaServer server, String name, int projects) throws Exception {
+        KibanaConfig config = new KibanaConfig();
+
+        KibanaConfig.KibanaSettings kibana = new KibanaConfig.KibanaSettings();
+        kibana.setBaseUrl(server.getBaseUrl());
+        kibana.setUsername("elastic");
+        kibana.setPassword("changeme");
+        config.setKibana(kibana);
+
+        List<KibanaConfig.ProjectSettings> projectList = new ArrayList<>();
+        for (int i = 0; i < projects; i++) {
+            KibanaConfig.ProjectSettings project = new KibanaConfig.ProjectSettings();
+            project.setName(String.format("p%03d", i));
+            project.setEnvironment("prod");
+            projectList.add(project);
+        }
+        if (projects == 1) {
+            config.setProject(projectList.get(0));
+        } else {
+            config.setProjects(projectList);
+        }
+
+        Files.createDirectories(OUTPUT_DIR);
+        KibanaConfig.AppSettings settings = new KibanaConfig.AppSettings();
+        settings.setShowDetailedMatching(false);
+        settings.setIndexCacheTtlSeconds(0);
+        settings.setPreferHttp2(false);
+        settings.setRetryBackoffMillis(50);
+        settings.setMaxRetries(5);
+        settings.setRequestsPerSecond(0);
+        settings.setMetricsFile(OUTPUT_DIR.resolve(name + "-metrics.json").toString());
+        settings.setPrometheusMetricsFile(OUTPUT_DIR.resolve(name + "-metrics.prom").toString());
+        config.setSettings(settings);
+        return config;
+    }
+
+    private static List<KibanaConfig.ProjectSettings> projectsOf(KibanaConfig config) {
+        return config.isFleetMode() ? config.getProjects() : List.of(config.getProject());
+    }
+
+    /**
+     * Distinct base names of the indices matching the project, i.e. the data views it should get
+     */
+    private static int expectedDataViews(FakeKibanaServer server, KibanaConfig.ProjectSettings project) throws Exception {
+        IndexMatcher matcher = IndexMatcher.forProject(project.getName(), project.getEnvironment());
+        BaseNameExtractor extractor = BaseNameExtractor.defaults();
+        Set<String> baseNames = new HashSet<>();
+        try (KibanaTransport transport = new KibanaTransport(server.getBaseUrl(), "elastic", "changeme", null)) {
+            KibanaUtils kibanaUtils = new KibanaUtils(project.getName(), project.getEnvironment(), transport);
+            kibanaUtils.forEachIndex(index -> {
+                if (matcher.isCombinedMatch(index)) {
+                    baseNames.add(extractor.extract(index));
+                }
+            });
+        }
+        return baseNames.size();
+    }
+
+    /**
+     * A load profile: number of indices, number of projects, fake server behaviour and
+     * settings overrides
+     */
+    private static final class Scenario {
+        private final int indexCount;
+        private final int projects;
+        private final ServerSetup setup;
+        private final Consumer<KibanaConfig.AppSettings> settings;
+        private boolean directElasticsearch;
+
+        private Scenario(int indexCount, int projects, ServerSetup setup) {
+            this(indexCount, projects, setup, settings -> {});
+        }
+
+        private Scenario(int indexCount, int projects, ServerSetup setup, Consumer<KibanaConfig.AppSettings> settings) {
+            this.indexCount = indexCount;
+            this.projects = projects;
+            this.setup = setup;
+            this.settings = settings;
+        }
+
+        /**
+         * Point the elasticsearch index source at the fake server instead of the console proxy
+         */
+        private Scenario directElasticsearch() {
+            this.directElasticsearch = true;
+            return this;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ServerSetup {
+        void accept(FakeKibanaServer server);
+    }
+}
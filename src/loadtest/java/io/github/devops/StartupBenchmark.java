@@ -0,0 +1,147 @@
+package io.github.devops;
+
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time-to-first-request of a fresh {@link Main} process, the cost a cron-style run pays
+ * before it does any work.
+ *
+ * Every run launches a new JVM on the given classpath against a {@link FakeKibanaServer}
+ * in this process and measures, on this process's clock, the time from launch until the
+ * first request arrives and until the process exits. Runs are repeated without and
+ * with the AppCDS archive. With {@code --train} a single run instead dumps the archive
+ * with {@code -XX:ArchiveClassesAtExit}; the classpath must then be exactly the one the
+ * start scripts use, or the JVM will refuse the archive.
+ *
+ * <pre>
+ * StartupBenchmark &lt;classpath&gt; [archive]
+ * StartupBenchmark --train &lt;classpath&gt; &lt;archive&gt;
+ * </pre>
+ */
+public class StartupBenchmark {
+    private static final int RUNS = 7;
+
+    private final PrintStream out = System.out;
+    private final FakeKibanaServer server;
+    private final String classpath;
+    private final Path configFile;
+
+    private StartupBenchmark(FakeKibanaServer server, String classpath, Path configFile) {
+        this.server = server;
+        this.classpath = classpath;
+        this.configFile = configFile;
+    }
+
+    public static void main(String[] args) throws Exception {
+        boolean train = args.length > 0 && args[0].equals("--train");
+        String[] rest = train ? Arrays.copyOfRange(args, 1, args.length) : args;
+        if (rest.length < 1 || (train && rest.length < 2)) {
+            System.err.println("Usage: StartupBenchmark [--train] <classpath> [archive]");
+            System.exit(2);
+        }
+        Path archive = rest.length > 1 ? Paths.get(rest[1]).toAbsolutePath() : null;
+
+        try (FakeKibanaServer server = new FakeKibanaServer().start()) {
+            server.generateIndices(2_000, 20, 200, 42);
+            Path configFile = Files.createTempFile("kibana-startup", ".yml");
+            try {
+                Files.writeString(configFile, config(server.getBaseUrl()));
+                StartupBenchmark benchmark = new StartupBenchmark(server, rest[0], configFile);
+                if (train) {
+                    benchmark.train(archive);
+                } else {
+                    benchmark.run("default CDS", List.of());
+                    if (archive != null && Files.exists(archive)) {
+                        benchmark.run("AppCDS", List.of("-XX:SharedArchiveFile=" + archive, "-Xshare:auto"));
+                    } else {
+                        benchmark.out.println("ℹ️ No AppCDS archive" + (archive != null ? " at " + archive : "")
+                                + ", run ./gradlew cdsArchive first to compare");
+                    }
+                }
+            } finally {
+                Files.deleteIfExists(configFile);
+            }
+        }
+    }
+
+    /**
+     * Minimal single-project configuration; JSON is valid YAML, so no YAML writer is needed
+     */
+    private static String config(String baseUrl) {
+        return "{\"kibana\": {\"baseUrl\": \"" + baseUrl + "\", \"username\": \"elastic\", \"password\": \"changeme\"},\n"
+                + " \"project\": {\"name\": \"p000\", \"environment\": \"prod\"},\n"
+                + " \"settings\": {\"outputLevel\": \"quiet\", \"metricsFile\": null, \"indexCacheTtlSeconds\": 0,"
+                + " \"requestsPerSecond\": 0, \"preferHttp2\": false}}\n";
+    }
+
+    private void train(Path archive) throws Exception {
+        Files.createDirectories(archive.getParent());
+        Files.deleteIfExists(archive);
+        Sample sample = launch(List.of("-XX:ArchiveClassesAtExit=" + archive));
+        if (!Files.exists(archive)) {
+            throw new IllegalStateException("JVM did not write the archive " + archive);
+        }
+        out.printf("✅ AppCDS archive %s written (%d KB) from a %d ms training run%n",
+                archive, Files.size(archive) / 1024, sample.totalMillis);
+    }
+
+    private void run(String name, List<String> jvmArgs) throws Exception {
+        // 第一次启动只用于预热文件系统缓存，不计入结果
+        launch(jvmArgs);
+        long[] firstRequest = new long[RUNS];
+        long[] total = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            Sample sample = launch(jvmArgs);
+            firstRequest[i] = sample.firstRequestMillis;
+            total[i] = sample.totalMillis;
+        }
+        Arrays.sort(firstRequest);
+        Arrays.sort(total);
+        out.printf("%-12s first request: median %5d ms, min %5d ms   process: median %5d ms, min %5d ms%n",
+                name, firstRequest[RUNS / 2], firstRequest[0], total[RUNS / 2], total[0]);
+    }
+
+    private Sample launch(List<String> jvmArgs) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(classpath);
+        command.add("io.github.devops.Main");
+        command.add(configFile.toString());
+
+        server.resetFirstRequest();
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        if (!process.waitFor(2, TimeUnit.MINUTES)) {
+            process.destroyForcibly();
+            throw new IllegalStateException("Main did not finish within 2 minutes");
+        }
+        long end = System.nanoTime();
+        long first = server.getFirstRequestNanos();
+        if (first == 0) {
+            throw new IllegalStateException("Main exited with " + process.exitValue() + " without sending a request");
+        }
+        return new Sample(TimeUnit.NANOSECONDS.toMillis(first - start), TimeUnit.NANOSECONDS.toMillis(end - start));
+    }
+
+    private static final class Sample {
+        private final long firstRequestMillis;
+        private final long totalMillis;
+
+        private Sample(long firstRequestMillis, long totalMillis) {
+            this.firstRequestMillis = firstRequestMillis;
+            this.totalMillis = totalMillis;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package io.github.devops;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-side admission control for requests to a shared Kibana.
+ *
+ * A token bucket caps the request rate, and an AIMD limit caps the number of
+ * requests in flight: the limit grows by one per window of successful requests
+ * and is halved on 429/503 or when latency climbs well above its long-term
+ * average. A {@code Retry-After} from the server pauses all admissions until it
+ * has passed. Waiting requests are queued and admitted asynchronously, so no
+ * thread blocks while the limiter holds them back.
+ */
+public class AdaptiveRateLimiter {
+    private static final double OVERLOAD_DECREASE = 0.5;
+    private static final double LATENCY_DECREASE = 0.8;
+    private static final double LATENCY_GROWTH_RATIO = 2.0;
+    private static final double FAST_SMOOTHING = 0.3;
+    private static final double SLOW_SMOOTHING = 0.05;
+    private static final int LATENCY_WARM_UP_SAMPLES = 20;
+    private static final long LATENCY_GROWTH_FLOOR_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private final double ratePerSecond;
+    private final double burst;
+    private final int maxLimit;
+    private final Deque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+    private final ScheduledExecutorService scheduler;
+
+    private double limit;
+    private int inFlight;
+    private double tokens;
+    private long lastRefill;
+    private long pausedUntil;
+    private long lastDecrease;
+    private double fastLatency;
+    private double slowLatency;
+    private int latencySamples;
+    private boolean wakeUpScheduled;
+
+    /**
+     * @param ratePerSecond maximum sustained request rate; zero or less disables the token bucket
+     * @param maxInFlight   upper bound of the adaptive concurrency limit
+     */
+    public AdaptiveRateLimiter(double ratePerSecond, int maxInFlight) {
+        this.ratePerSecond = ratePerSecond;
+        this.burst = Math.max(1, ratePerSecond);
+        this.maxLimit = Math.max(1, maxInFlight);
+        this.limit = maxLimit;
+        this.tokens = burst;
+        this.lastRefill = System.nanoTime();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "kibana-rate-limiter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Wait for admission; the returned future completes once the request may be sent.
+     * Every admission must be followed by exactly one call to {@link #release}.
+     */
+    public CompletableFuture<Void> acquire() {
+        CompletableFuture<Void> admission = new CompletableFuture<>();
+        synchronized (this) {
+            waiters.add(admission);
+        }
+        drain();
+        return admission;
+    }
+
+    /**
+     * Report the outcome of an admitted request
+     *
+     * @param statusCode      HTTP status, or -1 if the request failed without a response
+     * @param latencyNanos    time from sending to receiving the response headers
+     * @param retryAfterMillis delay requested by the server via Retry-After, or 0
+     */
+    public void release(int statusCode, long latencyNanos, long retryAfterMillis) {
+        synchronized (this) {
+            inFlight--;
+            long now = System.nanoTime();
+            if (retryAfterMillis > 0) {
+                pausedUntil = Math.max(pausedUntil, now + TimeUnit.MILLISECONDS.toNanos(retryAfterMillis));
+            }
+
+            if (statusCode == 429 || statusCode == 503 || statusCode < 0) {
+                decrease(OVERLOAD_DECREASE, now);
+            } else {
+                fastLatency = fastLatency == 0 ? latencyNanos : fastLatency + FAST_SMOOTHING * (latencyNanos - fastLatency);
+                slowLatency = slowLatency == 0 ? latencyNanos : slowLatency + SLOW_SMOOTHING * (latencyNanos - slowLatency);
+                latencySamples++;
+                // 忽略毫秒级的抖动，只对明显的延迟上升做出反应
+                if (latencySamples > LATENCY_WARM_UP_SAMPLES && fastLatency > LATENCY_GROWTH_RATIO * slowLatency
+                        && fastLatency - slowLatency > LATENCY_GROWTH_FLOOR_NANOS) {
+                    decrease(LATENCY_DECREASE, now);
+                } else if (statusCode < 500) {
+                    // 加性增长：每个窗口的请求全部成功后并发上限加一
+                    limit = Math.min(maxLimit, limit + 1 / limit);
+                }
+            }
+        }
+        drain();
+    }
+
+    /**
+     * Give back an admission that was not used, e.g. because the caller was interrupted
+     */
+    public void abandon() {
+        synchronized (this) {
+            inFlight--;
+        }
+        drain();
+    }
+
+    /**
+     * Get the current concurrency limit
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Shrink the limit, at most once per latency window so one burst of rejections counts once
+     */
+    private void decrease(double factor, long now) {
+        long window = Math.max(TimeUnit.MILLISECONDS.toNanos(100), (long) slowLatency);
+        if (now - lastDecrease >= window) {
+            limit = Math.max(1, limit * factor);
+            lastDecrease = now;
+        }
+    }
+
+    private void drain() {
+        List<CompletableFuture<Void>> admitted = new ArrayList<>();
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (now < pausedUntil) {
+                scheduleWakeUp(pausedUntil - now);
+            } else {
+                refill(now);
+                while (!waiters.isEmpty() && inFlight < (int) limit && (ratePerSecond <= 0 || tokens >= 1)) {
+                    if (waiters.peek().isDone()) {
+                        // 等待期间已被取消
+                        waiters.poll();
+                        continue;
+                    }
+                    if (ratePerSecond > 0) {
+                        tokens--;
+                    }
+                    inFlight++;
+                    admitted.add(waiters.poll());
+                }
+                if (!waiters.isEmpty() && inFlight < (int) limit) {
+                    // 令牌不足，等到下一个令牌生成时再继续
+                    scheduleWakeUp((long) ((1 - tokens) / ratePerSecond * TimeUnit.SECONDS.toNanos(1)));
+                }
+            }
+        }
+        for (CompletableFuture<Void> admission : admitted) {
+            if (!admission.complete(null)) {
+                abandon();
+            }
+        }
+    }
+
+    private void refill(long now) {
+        if (ratePerSecond > 0) {
+            tokens = Math.min(burst, tokens + (now - lastRefill) * ratePerSecond / TimeUnit.SECONDS.toNanos(1));
+        }
+        lastRefill = now;
+    }
+
+    private void scheduleWakeUp(long delayNanos) {
+        if (wakeUpScheduled || scheduler.isShutdown()) {
+            return;
+        }
+        wakeUpScheduled = true;
+        scheduler.schedule(() -> {
+            synchronized (this) {
+                wakeUpScheduled = false;
+            }
+            drain();
+        }, Math.max(1, delayNanos), TimeUnit.NANOSECONDS);
+    }
+}
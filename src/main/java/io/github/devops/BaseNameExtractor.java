@@ -0,0 +1,95 @@
+package io.github.devops;
+
+import java.util.List;
+
+/**
+ * Strips date suffixes from index names to obtain their base names.
+ *
+ * Suffix formats are templates in which {@code y}, {@code M} and {@code d} stand for
+ * a digit and every other character is literal. A trailing {@code *} means the
+ * format may be followed by anything (e.g. {@code -yyyy.MM.dd*} strips
+ * {@code -2024.01.01-000001}); without it the format must end the name.
+ *
+ * Formats are applied in order, each one to the name left by the previous ones,
+ * and each trailing format cuts at its leftmost occurrence. Matching works on the
+ * characters of the original name without regular expressions or intermediate
+ * strings, so a new string is only allocated when the name actually changes.
+ */
+public class BaseNameExtractor {
+    /**
+     * Default formats: -, _ and . separated yyyy.MM.dd / yyyy-MM-dd suffixes
+     */
+    public static final List<String> DEFAULT_FORMATS = List.of(
+            "-yyyy.MM.dd*",
+            "-yyyy-MM-dd*",
+            "_yyyy.MM.dd*",
+            "_yyyy-MM-dd*",
+            ".yyyy.MM.dd*",
+            "yyyy.MM.dd",
+            "yyyy-MM-dd"
+    );
+
+    private static final char DIGIT = 0;
+
+    private final char[][] templates;
+    private final boolean[] trailing;
+
+    public BaseNameExtractor(List<String> formats) {
+        this.templates = new char[formats.size()][];
+        this.trailing = new boolean[formats.size()];
+        for (int i = 0; i < formats.size(); i++) {
+            String format = formats.get(i);
+            trailing[i] = format.endsWith("*");
+            String body = trailing[i] ? format.substring(0, format.length() - 1) : format;
+            if (body.isEmpty()) {
+                throw new IllegalArgumentException("Invalid date suffix format: " + format);
+            }
+            templates[i] = new char[body.length()];
+            for (int j = 0; j < body.length(); j++) {
+                char c = body.charAt(j);
+                templates[i][j] = c == 'y' || c == 'M' || c == 'd' ? DIGIT : c;
+            }
+        }
+    }
+
+    /**
+     * Create an extractor with the default date suffix formats
+     */
+    public static BaseNameExtractor defaults() {
+        return new BaseNameExtractor(DEFAULT_FORMATS);
+    }
+
+    /**
+     * Remove date suffixes and lowercase the name
+     */
+    public String extract(String index) {
+        int end = index.length();
+        for (int k = 0; k < templates.length; k++) {
+            char[] template = templates[k];
+            if (trailing[k]) {
+                // 在剩余部分中找最左侧的出现位置，并截断其后的所有内容
+                for (int i = 0; i + template.length <= end; i++) {
+                    if (matchesAt(index, i, template)) {
+                        end = i;
+                        break;
+                    }
+                }
+            } else if (end >= template.length && matchesAt(index, end - template.length, template)) {
+                end -= template.length;
+            }
+        }
+
+        return index.substring(0, end).toLowerCase();
+    }
+
+    private static boolean matchesAt(String value, int position, char[] template) {
+        for (int j = 0; j < template.length; j++) {
+            char c = value.charAt(position + j);
+            char expected = template[j];
+            if (expected == DIGIT ? c < '0' || c > '9' : c != expected) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
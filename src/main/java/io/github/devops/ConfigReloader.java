@@ -0,0 +1,124 @@
+package io.github.devops;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Watches an external configuration file and prepares a compiled form of every
+ * valid new version.
+ *
+ * The directory of the file is watched, so editors that save by writing a temp
+ * file and renaming it are picked up too. After a short quiet period the file is
+ * parsed and passed to the compiler on the watcher thread; invalid YAML or
+ * patterns are reported and the previous version stays in effect. The consumer
+ * takes the latest compiled version with {@link #poll()} at a point of its own
+ * choosing, so the swap never happens in the middle of its work.
+ *
+ * @param <T> compiled form of the configuration, e.g. the matchers of all projects
+ */
+public class ConfigReloader<T> implements AutoCloseable {
+    private static final long QUIET_PERIOD_MILLIS = 200;
+
+    private final Path configFile;
+    private final Function<KibanaConfig, T> compiler;
+    private final Reporter reporter;
+    private final AtomicReference<T> pending = new AtomicReference<>();
+    private final WatchService watchService;
+    private final Thread thread;
+    private byte[] lastContent;
+
+    public ConfigReloader(Path configFile, Function<KibanaConfig, T> compiler, Reporter reporter) throws IOException {
+        this.configFile = configFile.toAbsolutePath();
+        this.compiler = compiler;
+        this.reporter = reporter;
+        this.lastContent = Files.readAllBytes(this.configFile);
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.configFile.getParent().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = new Thread(this::watch, "config-reloader");
+        thread.setDaemon(true);
+    }
+
+    public ConfigReloader<T> start() {
+        thread.start();
+        return this;
+    }
+
+    /**
+     * The newest compiled configuration since the last call, or null if nothing changed
+     */
+    public T poll() {
+        return pending.getAndSet(null);
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    Object context = event.context();
+                    if (context instanceof Path && configFile.getFileName().equals(context)) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (changed) {
+                    // 编辑器保存时可能连续触发多个事件，等待写入结束后只处理一次
+                    drainFor(QUIET_PERIOD_MILLIS);
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // 关闭时退出
+        }
+    }
+
+    private void drainFor(long millis) throws InterruptedException {
+        WatchKey key;
+        while ((key = watchService.poll(millis, TimeUnit.MILLISECONDS)) != null) {
+            key.pollEvents();
+            key.reset();
+        }
+    }
+
+    /**
+     * Parse and compile the file; on any error keep the current configuration
+     */
+    private void reload() {
+        try {
+            byte[] content = Files.readAllBytes(configFile);
+            if (Arrays.equals(content, lastContent)) {
+                return;
+            }
+            T compiled = compiler.apply(KibanaConfig.loadFromFile(configFile));
+            lastContent = content;
+            pending.set(compiled);
+            reporter.summary("🔄 Configuration " + configFile + " reloaded, applying on the next tick");
+        } catch (Exception e) {
+            reporter.warn("⚠️ Ignoring invalid configuration " + configFile + ": " + e.getMessage());
+        }
+        reporter.flush();
+    }
+
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            // 关闭失败不影响退出
+        }
+        thread.interrupt();
+    }
+}
@@ -0,0 +1,105 @@
+package io.github.devops;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * multipart/form-data body for saved objects {@code _import}, generated while it is read.
+ *
+ * The single {@code file} part is an NDJSON stream with one {@code index-pattern}
+ * saved object per line. Only one object is serialized at a time into a small
+ * reused buffer, so the request body of a large chunk never exists in memory as a
+ * whole. A new instance must be created for every send, e.g. from the supplier of
+ * {@link java.net.http.HttpRequest.BodyPublishers#ofInputStream}.
+ */
+public class DataViewImportStream extends InputStream {
+    private final ObjectMapper objectMapper;
+    private final String boundary;
+    private final Iterator<Map.Entry<String, String>> objects;
+    private final Function<String, ObjectNode> attributes;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+    private byte[] chunk = new byte[0];
+    private int position;
+    private int state;
+
+    /**
+     * @param objects    data view id to base name, in the order they are written
+     * @param attributes saved object attributes for a base name
+     */
+    public DataViewImportStream(ObjectMapper objectMapper, String boundary, Map<String, String> objects,
+                                Function<String, ObjectNode> attributes) {
+        this.objectMapper = objectMapper;
+        this.boundary = boundary;
+        this.objects = objects.entrySet().iterator();
+        this.attributes = attributes;
+    }
+
+    public static String contentType(String boundary) {
+        return "multipart/form-data; boundary=" + boundary;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] target, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        while (position == chunk.length) {
+            if (!fill()) {
+                return -1;
+            }
+        }
+        int count = Math.min(length, chunk.length - position);
+        System.arraycopy(chunk, position, target, offset, count);
+        position += count;
+        return count;
+    }
+
+    /**
+     * Produce the next piece of the body: part header, one object line, or the closing boundary
+     */
+    private boolean fill() throws IOException {
+        buffer.reset();
+        if (state == 0) {
+            buffer.write(("--" + boundary + "\r\n"
+                    + "Content-Disposition: form-data; name=\"file\"; filename=\"data-views.ndjson\"\r\n"
+                    + "Content-Type: application/ndjson\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            state = 1;
+        } else if (state == 1 && objects.hasNext()) {
+            Map.Entry<String, String> object = objects.next();
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(buffer)) {
+                generator.writeStartObject();
+                generator.writeStringField("type", "index-pattern");
+                generator.writeStringField("id", object.getKey());
+                generator.writeFieldName("attributes");
+                objectMapper.writeTree(generator, attributes.apply(object.getValue()));
+                generator.writeArrayFieldStart("references");
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+            buffer.write('\n');
+        } else if (state == 1) {
+            buffer.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+            state = 2;
+        } else {
+            return false;
+        }
+        chunk = buffer.toByteArray();
+        position = 0;
+        return true;
+    }
+}
@@ -0,0 +1,115 @@
+package io.github.devops;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.BiConsumer;
+
+/**
+ * Streaming reader for one page of a content_management/rpc/search response.
+ *
+ * Only the {@code id} and {@code attributes.title} of each hit and the
+ * {@code pagination.total} are read; field lists and other attributes are
+ * skipped without being materialised.
+ */
+public final class DataViewPageReader {
+    private static final int HITS_DEPTH = 2;
+
+    private DataViewPageReader() {
+    }
+
+    /**
+     * Pass every hit of the page to the consumer as (id, title)
+     *
+     * @return the total number of data views in the space, or -1 if the response has none
+     */
+    public static long read(JsonFactory factory, InputStream inputStream, BiConsumer<String, String> consumer) throws IOException {
+        try (JsonParser parser = factory.createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object in data view search response");
+            }
+            return readObject(parser, 0, consumer);
+        }
+    }
+
+    /**
+     * Walk down result.result to the hits and pagination fields
+     */
+    private static long readObject(JsonParser parser, int depth, BiConsumer<String, String> consumer) throws IOException {
+        long total = -1;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (depth < HITS_DEPTH && "result".equals(field) && value == JsonToken.START_OBJECT) {
+                long nested = readObject(parser, depth + 1, consumer);
+                if (nested >= 0) {
+                    total = nested;
+                }
+            } else if (depth == HITS_DEPTH && "hits".equals(field) && value == JsonToken.START_ARRAY) {
+                readHits(parser, consumer);
+            } else if (depth == HITS_DEPTH && "pagination".equals(field) && value == JsonToken.START_OBJECT) {
+                total = readTotal(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return total;
+    }
+
+    private static void readHits(JsonParser parser, BiConsumer<String, String> consumer) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            String id = null;
+            String title = "";
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("id".equals(field) && value == JsonToken.VALUE_STRING) {
+                    id = parser.getText();
+                } else if ("attributes".equals(field) && value == JsonToken.START_OBJECT) {
+                    title = readTitle(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (id != null) {
+                consumer.accept(id, title);
+            }
+        }
+    }
+
+    private static String readTitle(JsonParser parser) throws IOException {
+        String title = "";
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("title".equals(field) && value == JsonToken.VALUE_STRING) {
+                title = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return title;
+    }
+
+    private static long readTotal(JsonParser parser) throws IOException {
+        long total = -1;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("total".equals(field) && value == JsonToken.VALUE_NUMBER_INT) {
+                total = parser.getLongValue();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,171 @@
+package io.github.devops;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Streaming fetch → classify → strip → create pipeline for one space.
+ *
+ * The feed pushes index names into a {@link SubmissionPublisher} as they are parsed
+ * from the response. A single subscriber thread classifies each name, strips its date
+ * suffix and dedupes the base names in a concurrent set; the first time a base name is
+ * seen it is handed to the creator, whose asynchronous request runs while parsing and
+ * classification continue. At most maxInFlight creates are outstanding; when the limit
+ * is reached the subscriber waits, its buffer fills, and the feed blocks in
+ * {@code submit}, so a slow Kibana slows down the download instead of growing queues.
+ */
+public class DataViewPipeline implements Flow.Subscriber<String> {
+    private static final int BUFFER_SIZE = 1024;
+
+    private final IndexMatcher matcher;
+    private final BaseNameExtractor extractor;
+    private final Set<String> existing;
+    private final Function<String, CompletableFuture<Void>> creator;
+    private final int maxInFlight;
+    private final Semaphore permits;
+    private final Set<String> baseNames = ConcurrentHashMap.newKeySet();
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private final AtomicLong indices = new AtomicLong();
+    private final AtomicLong matched = new AtomicLong();
+    private final AtomicLong dispatched = new AtomicLong();
+    private Flow.Subscription subscription;
+
+    /**
+     * @param existing base names that already have a data view and are not created again
+     * @param creator  starts the create for a base name and records its outcome; if it throws,
+     *                 the pipeline stops and {@link #run(Feed)} fails
+     */
+    public DataViewPipeline(IndexMatcher matcher, BaseNameExtractor extractor, Set<String> existing,
+                            Function<String, CompletableFuture<Void>> creator, int maxInFlight) {
+        this.matcher = matcher;
+        this.extractor = extractor;
+        this.existing = existing;
+        this.creator = creator;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.permits = new Semaphore(this.maxInFlight);
+    }
+
+    /**
+     * Source of index names, e.g. a streamed index list
+     */
+    @FunctionalInterface
+    public interface Feed {
+        void forEach(Consumer<String> consumer) throws Exception;
+    }
+
+    /**
+     * Push every index of the feed through the pipeline and wait until all creates have finished
+     */
+    public void run(Feed feed) throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "data-view-pipeline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            SubmissionPublisher<String> publisher = new SubmissionPublisher<>(executor, BUFFER_SIZE);
+            publisher.subscribe(this);
+            try {
+                feed.forEach(index -> {
+                    if (!completion.isDone()) {
+                        publisher.submit(index);
+                    }
+                });
+            } catch (Exception e) {
+                publisher.closeExceptionally(e);
+                // 等订阅方处理完当前索引再收回许可，否则 run 抛出后订阅方仍可能派发创建请求
+                completion.handle((result, error) -> null).join();
+                throw e;
+            }
+            publisher.close();
+            completion.join();
+        } finally {
+            // 等待所有在途的创建请求结束
+            permits.acquireUninterruptibly(maxInFlight);
+            permits.release(maxInFlight);
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(BUFFER_SIZE);
+    }
+
+    @Override
+    public void onNext(String index) {
+        indices.incrementAndGet();
+        try {
+            if (matcher.isCombinedMatch(index)) {
+                matched.incrementAndGet();
+                String baseName = extractor.extract(index);
+                // 只在第一次出现时派发创建请求
+                if (!baseName.isEmpty() && baseNames.add(baseName) && !existing.contains(baseName)) {
+                    permits.acquire();
+                    boolean started = false;
+                    try {
+                        dispatched.incrementAndGet();
+                        creator.apply(baseName).whenComplete((result, error) -> permits.release());
+                        started = true;
+                    } finally {
+                        // 请求未能发出时归还许可，否则 run 结束时会一直等待
+                        if (!started) {
+                            permits.release();
+                        }
+                    }
+                }
+            }
+            subscription.request(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(e);
+        } catch (RuntimeException e) {
+            // 订阅方抛出异常时发布方只会取消订阅而不调用 onError，需要在这里结束流水线
+            fail(e);
+        }
+    }
+
+    private void fail(Throwable throwable) {
+        subscription.cancel();
+        completion.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        completion.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        completion.complete(null);
+    }
+
+    /**
+     * Distinct base names of all matching indices seen so far, including existing ones
+     */
+    public Set<String> getBaseNames() {
+        return baseNames;
+    }
+
+    public long getIndexCount() {
+        return indices.get();
+    }
+
+    public long getMatchedCount() {
+        return matched.get();
+    }
+
+    public long getDispatchedCount() {
+        return dispatched.get();
+    }
+}
@@ -0,0 +1,160 @@
+package io.github.devops;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Provision many project/environment pairs in one run.
+ *
+ * All projects share a single transport, the index list is fetched once and
+ * classified for every project in a single pass, and the projects are then
+ * provisioned concurrently. The full list is fetched even from a source that
+ * filters on the server, since it is shared by all projects.
+ */
+public class FleetProvisioner {
+    private final KibanaConfig config;
+    private final KibanaTransport transport;
+    private final IndexSource indexSource;
+    private final StateStore stateStore;
+    private final Reporter reporter;
+    private final boolean ownsReporter;
+    private final List<Tenant> tenants = new ArrayList<>();
+
+    public FleetProvisioner(KibanaConfig config) {
+        this(config, Reporter.fromSettings(config.getSettings()), true);
+    }
+
+    /**
+     * Create a provisioner reporting to the given reporter, which the caller closes
+     */
+    public FleetProvisioner(KibanaConfig config, Reporter reporter) {
+        this(config, reporter, false);
+    }
+
+    private FleetProvisioner(KibanaConfig config, Reporter reporter, boolean ownsReporter) {
+        this.config = config;
+        this.transport = KibanaTransport.fromConfig(config);
+        this.indexSource = IndexSource.fromConfig(config, transport, ObjectMappers.json());
+        this.stateStore = StateStore.fromConfig(config, ObjectMappers.json());
+        this.reporter = reporter;
+        this.ownsReporter = ownsReporter;
+
+        for (KibanaConfig.ProjectSettings project : config.getProjects()) {
+            KibanaUtils kibanaUtils = new KibanaUtils(project.getName(), project.getEnvironment(), transport);
+            kibanaUtils.setConfig(config);
+            // 所有项目共用一个输出，避免并发写入时各自缓冲互相穿插
+            kibanaUtils.setReporter(reporter);
+            kibanaUtils.setIndexSource(indexSource);
+            kibanaUtils.setStateStore(stateStore);
+
+            IndexMatcher matcher = matcherFor(project);
+            kibanaUtils.setIndexMatcher(matcher);
+
+            tenants.add(new Tenant(kibanaUtils, matcher));
+        }
+    }
+
+    /**
+     * Fetch and classify indices once, then provision all projects concurrently
+     */
+    public ProvisioningReport run() throws Exception {
+        reporter.summary("🚚 Fleet mode: " + tenants.size() + " projects");
+
+        ProvisioningReport report = new ProvisioningReport("Provision projects");
+        // 获取索引失败时同样关闭资源并导出指标
+        try (transport; indexSource; stateStore) {
+            if (config.getSettings().isAutoAddIndices()) {
+                classifyIndices();
+            }
+
+            ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, config.getSettings().getMaxConcurrentProjects()));
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (Tenant tenant : tenants) {
+                    futures.add(executor.submit(() -> provision(tenant, report)));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+
+            report.finish();
+            report.printSummary(reporter);
+        } finally {
+            transport.getMetrics().export(config.getSettings(), reporter);
+            if (ownsReporter) {
+                reporter.close();
+            } else {
+                reporter.flush();
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Matcher of one project of the fleet
+     */
+    static IndexMatcher matcherFor(KibanaConfig.ProjectSettings project) {
+        // 项目级匹配规则优先，否则按项目名和环境名匹配
+        return project.getIndexMatching() != null
+                ? IndexMatcher.fromSettings(project.getIndexMatching())
+                : IndexMatcher.forProject(project.getName(), project.getEnvironment());
+    }
+
+    /**
+     * Stream the index list once and route every index to the projects it belongs to
+     */
+    private void classifyIndices() throws Exception {
+        reporter.summary("\n🔍 Fetching and classifying indices for all projects...");
+        Map<Tenant, IndexMatcher> matchers = new LinkedHashMap<>();
+        for (Tenant tenant : tenants) {
+            matchers.put(tenant, tenant.matcher);
+        }
+        IndexRouter<Tenant> router = new IndexRouter<>(matchers);
+
+        tenants.get(0).kibanaUtils.classifyEachIndex(index -> router.route(index, tenant -> tenant.combinedMatches.add(index)));
+    }
+
+    private void provision(Tenant tenant, ProvisioningReport report) {
+        KibanaUtils kibanaUtils = tenant.kibanaUtils;
+        KibanaConfig.AppSettings settings = config.getSettings();
+        try {
+            if (settings.isAutoCreateSpace() || settings.isAutoAddIndices()) {
+                kibanaUtils.ensureSpace();
+            }
+            if (settings.isAutoAddIndices()) {
+                kibanaUtils.provisionDataViews(tenant.combinedMatches);
+            }
+            if (settings.isAutoCreateRole()) {
+                kibanaUtils.createRole();
+            }
+            if (settings.isAutoCreateUser()) {
+                kibanaUtils.createUser();
+            }
+            report.recordSuccess(kibanaUtils.getSpaceName());
+        } catch (Exception e) {
+            report.recordFailure(kibanaUtils.getSpaceName(), e.getMessage());
+        }
+    }
+
+    /**
+     * A single project/environment pair with its matcher and matched indices
+     */
+    private static final class Tenant {
+        private final KibanaUtils kibanaUtils;
+        private final IndexMatcher matcher;
+        private final List<String> combinedMatches = new ArrayList<>();
+
+        private Tenant(KibanaUtils kibanaUtils, IndexMatcher matcher) {
+            this.kibanaUtils = kibanaUtils;
+            this.matcher = matcher;
+        }
+    }
+}
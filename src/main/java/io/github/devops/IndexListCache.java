@@ -0,0 +1,183 @@
+package io.github.devops;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache of the index list with a TTL, kept in memory and optionally in an on-disk
+ * snapshot so that runs started within the TTL can reuse the list as well. Lists
+ * fetched with a server-side wildcard expression are kept in memory per expression.
+ */
+public class IndexListCache {
+    private final String baseUrl;
+    private final long ttlMillis;
+    private final Path snapshotFile;
+    private final ObjectMapper objectMapper;
+    private List<String> indices;
+    private long fetchedAt;
+    private boolean snapshotChecked;
+    private final Map<String, Filtered> filtered = new HashMap<>();
+    private Reporter reporter = Reporter.console(Reporter.Level.SUMMARY);
+
+    /**
+     * @param baseUrl      Kibana URL the list belongs to; snapshots of other clusters are ignored
+     * @param ttl          how long a fetched list stays valid; zero disables the cache
+     * @param snapshotFile optional snapshot file, or null for an in-memory cache only
+     */
+    public IndexListCache(String baseUrl, Duration ttl, Path snapshotFile, ObjectMapper objectMapper) {
+        this.baseUrl = baseUrl;
+        this.ttlMillis = ttl.toMillis();
+        this.snapshotFile = snapshotFile;
+        this.objectMapper = objectMapper;
+    }
+
+    public void setReporter(Reporter reporter) {
+        this.reporter = reporter;
+    }
+
+    public boolean isEnabled() {
+        return ttlMillis > 0;
+    }
+
+    /**
+     * Get the cached indices, or null if nothing valid is cached
+     */
+    public synchronized List<String> get() {
+        if (!isEnabled()) {
+            return null;
+        }
+        if (indices == null && !snapshotChecked) {
+            snapshotChecked = true;
+            loadSnapshot();
+        }
+        if (indices != null && System.currentTimeMillis() - fetchedAt > ttlMillis) {
+            indices = null;
+        }
+        return indices;
+    }
+
+    /**
+     * Store a freshly fetched index list and write the snapshot
+     */
+    public synchronized void put(List<String> fetched) {
+        if (!isEnabled()) {
+            return;
+        }
+        indices = Collections.unmodifiableList(new ArrayList<>(fetched));
+        fetchedAt = System.currentTimeMillis();
+        saveSnapshot();
+    }
+
+    /**
+     * Get the cached indices matching a wildcard expression, or null if nothing valid is cached
+     */
+    public synchronized List<String> get(String pattern) {
+        if (!isEnabled()) {
+            return null;
+        }
+        Filtered entry = filtered.get(pattern);
+        if (entry != null && System.currentTimeMillis() - entry.fetchedAt > ttlMillis) {
+            filtered.remove(pattern);
+            return null;
+        }
+        return entry != null ? entry.indices : null;
+    }
+
+    /**
+     * Store a freshly fetched list of the indices matching a wildcard expression
+     */
+    public synchronized void put(String pattern, List<String> fetched) {
+        if (!isEnabled()) {
+            return;
+        }
+        filtered.put(pattern, new Filtered(Collections.unmodifiableList(new ArrayList<>(fetched)), System.currentTimeMillis()));
+    }
+
+    /**
+     * Drop the cached lists, including the on-disk snapshot
+     */
+    public synchronized void invalidate() {
+        indices = null;
+        filtered.clear();
+        snapshotChecked = true;
+        if (snapshotFile != null) {
+            try {
+                Files.deleteIfExists(snapshotFile);
+            } catch (IOException e) {
+                reporter.warn("⚠️ Failed to delete index cache " + snapshotFile + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void loadSnapshot() {
+        if (snapshotFile == null || !Files.exists(snapshotFile)) {
+            return;
+        }
+        try {
+            JsonNode snapshot = objectMapper.readTree(snapshotFile.toFile());
+            if (!baseUrl.equals(snapshot.path("baseUrl").asText())) {
+                return;
+            }
+            List<String> loaded = new ArrayList<>();
+            for (JsonNode index : snapshot.path("indices")) {
+                loaded.add(index.asText());
+            }
+            indices = Collections.unmodifiableList(loaded);
+            fetchedAt = snapshot.path("fetchedAt").asLong();
+        } catch (IOException e) {
+            reporter.warn("⚠️ Ignoring unreadable index cache " + snapshotFile + ": " + e.getMessage());
+        }
+    }
+
+    private void saveSnapshot() {
+        if (snapshotFile == null) {
+            return;
+        }
+        try {
+            Path parent = snapshotFile.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path tempFile = Files.createTempFile(parent, "indices", ".tmp");
+            try (OutputStream outputStream = Files.newOutputStream(tempFile);
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartObject();
+                generator.writeStringField("baseUrl", baseUrl);
+                generator.writeNumberField("fetchedAt", fetchedAt);
+                generator.writeArrayFieldStart("indices");
+                for (String index : indices) {
+                    generator.writeString(index);
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+            Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            reporter.warn("⚠️ Failed to write index cache " + snapshotFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Index list fetched with a wildcard expression
+     */
+    private static final class Filtered {
+        private final List<String> indices;
+        private final long fetchedAt;
+
+        private Filtered(List<String> indices, long fetchedAt) {
+            this.indices = indices;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package io.github.devops;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Typed result of index classification against the configured patterns
+ */
+public class IndexMatchResult {
+    private final List<String> projectMatches = new ArrayList<>();
+    private final List<String> environmentMatches = new ArrayList<>();
+    private final List<String> dateMatches = new ArrayList<>();
+    private final List<String> customMatches = new ArrayList<>();
+    private final List<String> combinedMatches = new ArrayList<>();
+    private final List<String> excludedIndices = new ArrayList<>();
+
+    /**
+     * Record an index with the category mask returned by {@link IndexMatcher#classify(String)}
+     */
+    public void add(String index, int mask) {
+        if ((mask & IndexMatcher.EXCLUDED) != 0) {
+            excludedIndices.add(index);
+            return;
+        }
+        if ((mask & IndexMatcher.PROJECT) != 0) projectMatches.add(index);
+        if ((mask & IndexMatcher.ENVIRONMENT) != 0) environmentMatches.add(index);
+        if ((mask & IndexMatcher.DATE) != 0) dateMatches.add(index);
+        if ((mask & IndexMatcher.CUSTOM) != 0) customMatches.add(index);
+        if (isCombined(mask)) combinedMatches.add(index);
+    }
+
+    /**
+     * Check whether a category mask contains both project and environment matches
+     */
+    public static boolean isCombined(int mask) {
+        return (mask & (IndexMatcher.PROJECT | IndexMatcher.ENVIRONMENT)) == (IndexMatcher.PROJECT | IndexMatcher.ENVIRONMENT);
+    }
+
+    // Getters
+    public List<String> getProjectMatches() { return projectMatches; }
+    public List<String> getEnvironmentMatches() { return environmentMatches; }
+    public List<String> getDateMatches() { return dateMatches; }
+    public List<String> getCustomMatches() { return customMatches; }
+    public List<String> getCombinedMatches() { return combinedMatches; }
+    public List<String> getExcludedIndices() { return excludedIndices; }
+}
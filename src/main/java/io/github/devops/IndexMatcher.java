@@ -0,0 +1,307 @@
+package io.github.devops;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Precompiled index matcher built once from the index matching configuration.
+ *
+ * All patterns are compiled when the matcher is created, and patterns that are
+ * plain literals wrapped in {@code .*} (e.g. {@code .*p01.*}) are reduced to
+ * substring, prefix, suffix or equality checks instead of regular expressions.
+ */
+public class IndexMatcher {
+    public static final int PROJECT = 1;
+    public static final int ENVIRONMENT = 1 << 1;
+    public static final int DATE = 1 << 2;
+    public static final int CUSTOM = 1 << 3;
+    public static final int EXCLUDED = 1 << 4;
+
+    private final CompiledPattern[] projectPatterns;
+    private final CompiledPattern[] environmentPatterns;
+    private final CompiledPattern[] datePatterns;
+    private final CompiledPattern[] customPatterns;
+    private final CompiledPattern[] excludePatterns;
+
+    private IndexMatcher(KibanaConfig.IndexMatchingSettings matching) {
+        this.projectPatterns = compileAll(matching.getProjectPatterns(), true);
+        this.environmentPatterns = compileAll(matching.getEnvironmentPatterns(), true);
+        this.datePatterns = compileAll(matching.getDatePatterns(), false);
+        this.customPatterns = compileAll(matching.getCustomPatterns(), true);
+        this.excludePatterns = compileAll(matching.getExcludePatterns(), true);
+    }
+
+    /**
+     * Build a matcher from the index matching settings
+     */
+    public static IndexMatcher fromSettings(KibanaConfig.IndexMatchingSettings matching) {
+        if (matching == null) {
+            throw new IllegalArgumentException("Index matching settings must not be null");
+        }
+        return new IndexMatcher(matching);
+    }
+
+    /**
+     * Build a matcher that only matches on project and environment names
+     */
+    public static IndexMatcher forProject(String projectName, String projectEnv) {
+        KibanaConfig.IndexMatchingSettings matching = new KibanaConfig.IndexMatchingSettings();
+        matching.setProjectPatterns(List.of(".*" + projectName + ".*"));
+        matching.setEnvironmentPatterns(List.of(".*" + projectEnv + ".*"));
+        return new IndexMatcher(matching);
+    }
+
+    /**
+     * Classify a single index in one pass and return a bit mask of the matched categories.
+     * Excluded indices only carry the {@link #EXCLUDED} bit.
+     */
+    public int classify(String index) {
+        String lowerIndex = asciiLowerCase(index);
+
+        if (matchesAny(excludePatterns, index, lowerIndex)) {
+            return EXCLUDED;
+        }
+
+        int mask = 0;
+        if (matchesAny(projectPatterns, index, lowerIndex)) mask |= PROJECT;
+        if (matchesAny(environmentPatterns, index, lowerIndex)) mask |= ENVIRONMENT;
+        if (matchesAny(datePatterns, index, lowerIndex)) mask |= DATE;
+        if (matchesAny(customPatterns, index, lowerIndex)) mask |= CUSTOM;
+        return mask;
+    }
+
+    /**
+     * Check whether an index matches both project and environment patterns
+     */
+    public boolean isCombinedMatch(String index) {
+        return IndexMatchResult.isCombined(classify(index));
+    }
+
+    /**
+     * Classify all indices and collect them into a typed result
+     */
+    public IndexMatchResult classifyAll(Iterable<String> indices) {
+        IndexMatchResult result = new IndexMatchResult();
+        for (String index : indices) {
+            result.add(index, classify(index));
+        }
+        return result;
+    }
+
+    /**
+     * Elasticsearch wildcard expression selecting a superset of the combined matches,
+     * e.g. {@code *p01*prod*,*prod*p01*}, or null if a project pattern is not a plain
+     * literal check and the full index list is needed
+     */
+    public String toWildcardExpression() {
+        if (projectPatterns.length == 0) {
+            return null;
+        }
+        Set<String> expressions = new LinkedHashSet<>();
+        for (CompiledPattern project : projectPatterns) {
+            String projectWildcard = project.toWildcard();
+            if (projectWildcard == null) {
+                return null;
+            }
+            boolean combined = project.kind() == CompiledPattern.Kind.CONTAINS && environmentPatterns.length > 0;
+            for (CompiledPattern environment : environmentPatterns) {
+                combined &= environment.kind() == CompiledPattern.Kind.CONTAINS && environment.toWildcard() != null
+                        && !overlaps(project.literal(), environment.literal());
+            }
+            if (!combined) {
+                // 只按项目名过滤，环境名仍在客户端判断
+                expressions.add(projectWildcard);
+                continue;
+            }
+            for (CompiledPattern environment : environmentPatterns) {
+                expressions.add("*" + project.literal() + "*" + environment.literal() + "*");
+                expressions.add("*" + environment.literal() + "*" + project.literal() + "*");
+            }
+        }
+        return String.join(",", expressions);
+    }
+
+    /**
+     * Whether two literals can share characters in a name, in which case "a then b" or
+     * "b then a" wildcards would miss names where they overlap
+     */
+    private static boolean overlaps(String a, String b) {
+        if (a.contains(b) || b.contains(a)) {
+            return true;
+        }
+        for (int length = 1; length < Math.min(a.length(), b.length()); length++) {
+            if (a.endsWith(b.substring(0, length)) || b.endsWith(a.substring(0, length))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Compiled patterns, used by IndexRouter to merge many matchers into one automaton
+    CompiledPattern[] projectPatterns() { return projectPatterns; }
+    CompiledPattern[] environmentPatterns() { return environmentPatterns; }
+    CompiledPattern[] excludePatterns() { return excludePatterns; }
+
+    private static boolean matchesAny(CompiledPattern[] patterns, String index, String lowerIndex) {
+        for (CompiledPattern pattern : patterns) {
+            if (pattern.matches(index, lowerIndex)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static CompiledPattern[] compileAll(List<String> patterns, boolean caseInsensitive) {
+        if (patterns == null) {
+            return new CompiledPattern[0];
+        }
+        List<CompiledPattern> compiled = new ArrayList<>(patterns.size());
+        for (String pattern : patterns) {
+            compiled.add(CompiledPattern.compile(pattern, caseInsensitive));
+        }
+        return compiled.toArray(new CompiledPattern[0]);
+    }
+
+    /**
+     * Lowercase ASCII letters only, matching the semantics of {@link Pattern#CASE_INSENSITIVE}.
+     * Returns the same instance when there is nothing to change.
+     */
+    static String asciiLowerCase(String value) {
+        int length = value.length();
+        int i = 0;
+        while (i < length) {
+            char c = value.charAt(i);
+            if (c >= 'A' && c <= 'Z') break;
+            i++;
+        }
+        if (i == length) {
+            return value;
+        }
+        char[] chars = value.toCharArray();
+        for (; i < length; i++) {
+            char c = chars[i];
+            if (c >= 'A' && c <= 'Z') {
+                chars[i] = (char) (c + ('a' - 'A'));
+            }
+        }
+        return new String(chars);
+    }
+
+    /**
+     * A single compiled pattern, either a literal check or a regular expression
+     */
+    static final class CompiledPattern {
+        enum Kind { EQUALS, PREFIX, SUFFIX, CONTAINS, REGEX }
+
+        private final Kind kind;
+        private final String literal;
+        private final Pattern regex;
+        private final boolean caseInsensitive;
+
+        private CompiledPattern(Kind kind, String literal, Pattern regex, boolean caseInsensitive) {
+            this.kind = kind;
+            this.literal = literal;
+            this.regex = regex;
+            this.caseInsensitive = caseInsensitive;
+        }
+
+        static CompiledPattern compile(String pattern, boolean caseInsensitive) {
+            // Validate the pattern even when it is reduced to a literal check
+            Pattern regex = caseInsensitive
+                    ? Pattern.compile(pattern, Pattern.CASE_INSENSITIVE)
+                    : Pattern.compile(pattern);
+
+            String body = pattern;
+            boolean leadingWildcard = body.startsWith(".*");
+            if (leadingWildcard) body = body.substring(2);
+            boolean trailingWildcard = body.endsWith(".*") && !body.endsWith("\\.*");
+            if (trailingWildcard) body = body.substring(0, body.length() - 2);
+
+            String literal = unescapeLiteral(body);
+            if (literal == null) {
+                return new CompiledPattern(Kind.REGEX, null, regex, caseInsensitive);
+            }
+            if (caseInsensitive) {
+                literal = asciiLowerCase(literal);
+            }
+
+            Kind kind;
+            if (leadingWildcard && trailingWildcard) {
+                kind = Kind.CONTAINS;
+            } else if (leadingWildcard) {
+                kind = Kind.SUFFIX;
+            } else if (trailingWildcard) {
+                kind = Kind.PREFIX;
+            } else {
+                kind = Kind.EQUALS;
+            }
+            return new CompiledPattern(kind, literal, null, caseInsensitive);
+        }
+
+        /**
+         * Equivalent Elasticsearch wildcard, or null for regular expressions and literals
+         * that cannot appear in a wildcard expression. Index names are always lowercase,
+         * so case-insensitive literals translate directly.
+         */
+        String toWildcard() {
+            if (kind == Kind.REGEX || !caseInsensitive || literal.isEmpty() || literal.indexOf(',') >= 0) {
+                return null;
+            }
+            switch (kind) {
+                case EQUALS:
+                    return literal;
+                case PREFIX:
+                    return literal + "*";
+                case SUFFIX:
+                    return "*" + literal;
+                default:
+                    return "*" + literal + "*";
+            }
+        }
+
+        Kind kind() { return kind; }
+        String literal() { return literal; }
+        boolean isCaseInsensitive() { return caseInsensitive; }
+
+        boolean matches(String index, String lowerIndex) {
+            String value = caseInsensitive ? lowerIndex : index;
+            switch (kind) {
+                case EQUALS:
+                    return value.equals(literal);
+                case PREFIX:
+                    return value.startsWith(literal);
+                case SUFFIX:
+                    return value.endsWith(literal);
+                case CONTAINS:
+                    return value.contains(literal);
+                default:
+                    return regex.matcher(index).matches();
+            }
+        }
+
+        /**
+         * Return the literal text of a pattern, or null if it contains regex constructs.
+         * Escaped punctuation such as {@code \.} or {@code \-} is treated as a literal character.
+         */
+        private static String unescapeLiteral(String body) {
+            StringBuilder literal = new StringBuilder(body.length());
+            for (int i = 0; i < body.length(); i++) {
+                char c = body.charAt(i);
+                if (c == '\\') {
+                    if (i + 1 >= body.length()) return null;
+                    char next = body.charAt(++i);
+                    if (Character.isLetterOrDigit(next)) return null;
+                    literal.append(next);
+                } else if (".[]{}()*+?^$|".indexOf(c) >= 0 || c > 0x7f) {
+                    return null;
+                } else {
+                    literal.append(c);
+                }
+            }
+            return literal.toString();
+        }
+    }
+}
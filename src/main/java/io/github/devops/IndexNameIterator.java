@@ -0,0 +1,96 @@
+package io.github.devops;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Streaming iterator over the index names of an /api/index_management/indices or
+ * _cat/indices response.
+ *
+ * The response is read token by token with a {@link JsonParser}; only the name field
+ * of each index object is materialised, everything else is skipped.
+ */
+public class IndexNameIterator implements Iterator<String>, AutoCloseable {
+    private final JsonParser parser;
+    private final String nameField;
+    private String next;
+    private boolean finished;
+
+    public IndexNameIterator(JsonFactory factory, InputStream inputStream) throws IOException {
+        this(factory, inputStream, "name");
+    }
+
+    /**
+     * @param nameField field holding the index name, e.g. {@code index} for _cat/indices
+     */
+    public IndexNameIterator(JsonFactory factory, InputStream inputStream, String nameField) throws IOException {
+        this.nameField = nameField;
+        this.parser = factory.createParser(inputStream);
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            parser.close();
+            throw new IOException("Expected a JSON array of indices");
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            try {
+                next = readNextName();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to parse indices response", e);
+            }
+            finished = next == null;
+        }
+        return next != null;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String name = next;
+        next = null;
+        return name;
+    }
+
+    /**
+     * Advance to the next index object that has a name, skipping all other fields
+     */
+    private String readNextName() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            String name = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (nameField.equals(field) && value == JsonToken.VALUE_STRING) {
+                    name = parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (name != null) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
@@ -0,0 +1,230 @@
+package io.github.devops;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.function.Consumer;
+
+/**
+ * Routes index names to the owners (e.g. project/environment pairs) whose matcher
+ * reports a combined project + environment match.
+ *
+ * The literal project, environment and exclude patterns of all matchers are merged
+ * into a single Aho-Corasick automaton, so each index is scanned once regardless of
+ * the number of owners. Patterns that are not plain literals are evaluated as a
+ * fallback, only for the owners they belong to.
+ */
+public class IndexRouter<T> {
+    private static final int PROJECT = 0;
+    private static final int ENVIRONMENT = 1;
+    private static final int EXCLUDED = 2;
+
+    private final List<T> owners;
+    private final Node root = new Node();
+    private final List<Integer> literalLengths = new ArrayList<>();
+    private final List<List<LiteralRef>> literalRefs = new ArrayList<>();
+    private final List<FallbackPattern> projectFallbacks = new ArrayList<>();
+    private final List<FallbackPattern> environmentFallbacks = new ArrayList<>();
+    private final IndexMatcher.CompiledPattern[][] excludeFallbacks;
+
+    public IndexRouter(Map<T, IndexMatcher> matchers) {
+        this.owners = new ArrayList<>(matchers.keySet());
+        this.excludeFallbacks = new IndexMatcher.CompiledPattern[owners.size()][];
+
+        Map<String, Integer> literalIds = new LinkedHashMap<>();
+        int owner = 0;
+        for (IndexMatcher matcher : matchers.values()) {
+            addPatterns(matcher.projectPatterns(), owner, PROJECT, literalIds, projectFallbacks);
+            addPatterns(matcher.environmentPatterns(), owner, ENVIRONMENT, literalIds, environmentFallbacks);
+
+            List<FallbackPattern> excludes = new ArrayList<>();
+            addPatterns(matcher.excludePatterns(), owner, EXCLUDED, literalIds, excludes);
+            excludeFallbacks[owner] = new IndexMatcher.CompiledPattern[excludes.size()];
+            for (int i = 0; i < excludes.size(); i++) {
+                excludeFallbacks[owner][i] = excludes.get(i).pattern;
+            }
+            owner++;
+        }
+
+        buildFailureLinks();
+    }
+
+    /**
+     * Return the owners of an index
+     */
+    public List<T> route(String index) {
+        List<T> result = new ArrayList<>(2);
+        route(index, result::add);
+        return result;
+    }
+
+    /**
+     * Pass every owner of an index to the consumer in a single scan of the name
+     */
+    public void route(String index, Consumer<T> consumer) {
+        String lowerIndex = IndexMatcher.asciiLowerCase(index);
+        BitSet[] hits = { new BitSet(owners.size()), new BitSet(owners.size()), new BitSet(owners.size()) };
+
+        // 单次扫描匹配所有字面量模式
+        Node node = root;
+        int last = lowerIndex.length() - 1;
+        for (int i = 0; i <= last; i++) {
+            char c = lowerIndex.charAt(i);
+            while (node != root && !node.children.containsKey(c)) {
+                node = node.fail;
+            }
+            node = node.children.getOrDefault(c, root);
+            for (int literalId : node.outputs) {
+                boolean atStart = i + 1 == literalLengths.get(literalId);
+                boolean atEnd = i == last;
+                for (LiteralRef ref : literalRefs.get(literalId)) {
+                    if (ref.accepts(atStart, atEnd)) {
+                        hits[ref.category].set(ref.owner);
+                    }
+                }
+            }
+        }
+
+        BitSet project = hits[PROJECT];
+        BitSet environment = hits[ENVIRONMENT];
+        for (FallbackPattern fallback : projectFallbacks) {
+            if (!project.get(fallback.owner) && fallback.pattern.matches(index, lowerIndex)) {
+                project.set(fallback.owner);
+            }
+        }
+        for (FallbackPattern fallback : environmentFallbacks) {
+            if (project.get(fallback.owner) && !environment.get(fallback.owner)
+                    && fallback.pattern.matches(index, lowerIndex)) {
+                environment.set(fallback.owner);
+            }
+        }
+
+        for (int owner = project.nextSetBit(0); owner >= 0; owner = project.nextSetBit(owner + 1)) {
+            if (environment.get(owner) && !hits[EXCLUDED].get(owner) && !matchesAny(excludeFallbacks[owner], index, lowerIndex)) {
+                consumer.accept(owners.get(owner));
+            }
+        }
+    }
+
+    private static boolean matchesAny(IndexMatcher.CompiledPattern[] patterns, String index, String lowerIndex) {
+        for (IndexMatcher.CompiledPattern pattern : patterns) {
+            if (pattern.matches(index, lowerIndex)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addPatterns(IndexMatcher.CompiledPattern[] patterns, int owner, int category,
+                             Map<String, Integer> literalIds, List<FallbackPattern> fallbacks) {
+        for (IndexMatcher.CompiledPattern pattern : patterns) {
+            String literal = pattern.literal();
+            if (pattern.kind() == IndexMatcher.CompiledPattern.Kind.REGEX || literal.isEmpty() || !pattern.isCaseInsensitive()) {
+                fallbacks.add(new FallbackPattern(owner, pattern));
+                continue;
+            }
+            Integer literalId = literalIds.get(literal);
+            if (literalId == null) {
+                literalId = literalIds.size();
+                literalIds.put(literal, literalId);
+                literalLengths.add(literal.length());
+                literalRefs.add(new ArrayList<>());
+                insert(literal, literalId);
+            }
+            literalRefs.get(literalId).add(new LiteralRef(owner, category, pattern.kind()));
+        }
+    }
+
+    private void insert(String literal, int literalId) {
+        Node node = root;
+        for (int i = 0; i < literal.length(); i++) {
+            node = node.children.computeIfAbsent(literal.charAt(i), c -> new Node());
+        }
+        node.outputs = append(node.outputs, literalId);
+    }
+
+    /**
+     * Breadth-first construction of failure links, merging the outputs of each failure target
+     */
+    private void buildFailureLinks() {
+        Queue<Node> queue = new ArrayDeque<>();
+        root.fail = root;
+        for (Node child : root.children.values()) {
+            child.fail = root;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            for (Map.Entry<Character, Node> entry : node.children.entrySet()) {
+                char c = entry.getKey();
+                Node child = entry.getValue();
+                Node fail = node.fail;
+                while (fail != root && !fail.children.containsKey(c)) {
+                    fail = fail.fail;
+                }
+                Node target = fail.children.get(c);
+                child.fail = target != null && target != child ? target : root;
+                for (int output : child.fail.outputs) {
+                    child.outputs = append(child.outputs, output);
+                }
+                queue.add(child);
+            }
+        }
+    }
+
+    private static int[] append(int[] values, int value) {
+        int[] result = new int[values.length + 1];
+        System.arraycopy(values, 0, result, 0, values.length);
+        result[values.length] = value;
+        return result;
+    }
+
+    private static final class Node {
+        private final Map<Character, Node> children = new HashMap<>();
+        private Node fail;
+        private int[] outputs = new int[0];
+    }
+
+    /**
+     * A literal pattern occurrence for one owner and category
+     */
+    private static final class LiteralRef {
+        private final int owner;
+        private final int category;
+        private final IndexMatcher.CompiledPattern.Kind kind;
+
+        private LiteralRef(int owner, int category, IndexMatcher.CompiledPattern.Kind kind) {
+            this.owner = owner;
+            this.category = category;
+            this.kind = kind;
+        }
+
+        private boolean accepts(boolean atStart, boolean atEnd) {
+            switch (kind) {
+                case EQUALS:
+                    return atStart && atEnd;
+                case PREFIX:
+                    return atStart;
+                case SUFFIX:
+                    return atEnd;
+                default:
+                    return true;
+            }
+        }
+    }
+
+    private static final class FallbackPattern {
+        private final int owner;
+        private final IndexMatcher.CompiledPattern pattern;
+
+        private FallbackPattern(int owner, IndexMatcher.CompiledPattern pattern) {
+            this.owner = owner;
+            this.pattern = pattern;
+        }
+    }
+}
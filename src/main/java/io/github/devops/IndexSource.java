@@ -0,0 +1,55 @@
+package io.github.devops;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.Locale;
+
+/**
+ * Where the index list comes from.
+ *
+ * The Kibana source lists every index through the index management API and all
+ * filtering happens on the client. The Elasticsearch source evaluates a wildcard
+ * expression on the server, so a project only downloads the names it can match.
+ */
+public interface IndexSource extends AutoCloseable {
+
+    /**
+     * Open a streaming iterator over the names of the indices matching the wildcard
+     * expression, or of all indices when it is null; the caller must close it
+     */
+    IndexNameIterator open(String pattern) throws Exception;
+
+    /**
+     * Whether {@link #open} evaluates the wildcard expression on the server
+     */
+    boolean supportsPatterns();
+
+    @Override
+    default void close() {
+    }
+
+    /**
+     * Create the source selected by the indexSource setting
+     */
+    static IndexSource fromConfig(KibanaConfig config, KibanaTransport transport, ObjectMapper objectMapper) {
+        String source = config.getSettings() != null && config.getSettings().getIndexSource() != null
+                ? config.getSettings().getIndexSource().toLowerCase(Locale.ROOT) : "kibana";
+
+        switch (source) {
+            case "kibana":
+                return new KibanaIndexSource(transport, objectMapper);
+            case "elasticsearch":
+                KibanaConfig.ElasticsearchSettings elasticsearch = config.getElasticsearch();
+                if (elasticsearch == null || elasticsearch.getBaseUrl() == null) {
+                    // 未配置 Elasticsearch 地址时通过 Kibana 的 console 代理访问
+                    return ElasticsearchIndexSource.viaKibana(transport, objectMapper);
+                }
+                String username = elasticsearch.getUsername() != null ? elasticsearch.getUsername() : config.getKibana().getUsername();
+                String password = elasticsearch.getPassword() != null ? elasticsearch.getPassword() : config.getKibana().getPassword();
+                return ElasticsearchIndexSource.direct(
+                        new KibanaTransport(elasticsearch.getBaseUrl(), username, password, config.getSettings()), objectMapper);
+            default:
+                throw new IllegalArgumentException("Unknown index source: " + config.getSettings().getIndexSource());
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package io.github.devops;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Writes messages and records as JSON objects, either one per line (NDJSON) as they
+ * happen, or as a single JSON array that is completed on close.
+ *
+ * Every object has a {@code time}, {@code type} and {@code level}; messages use the
+ * types {@code message} and {@code warning} and carry the text without decoration
+ * whitespace.
+ */
+public class JsonReporter implements Reporter {
+    private final ObjectMapper objectMapper = ObjectMappers.json();
+    private final Level level;
+    private final Writer writer;
+    private final boolean ownsWriter;
+    private final boolean lineDelimited;
+    private final JsonGenerator arrayGenerator;
+    private boolean closed;
+
+    /**
+     * @param lineDelimited true for NDJSON, false for a single JSON array
+     */
+    public JsonReporter(Level level, Writer writer, boolean ownsWriter, boolean lineDelimited) {
+        this.level = level;
+        this.writer = writer;
+        this.ownsWriter = ownsWriter;
+        this.lineDelimited = lineDelimited;
+        try {
+            if (lineDelimited) {
+                this.arrayGenerator = null;
+            } else {
+                this.arrayGenerator = objectMapper.getFactory().createGenerator(writer);
+                arrayGenerator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                arrayGenerator.writeStartArray();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean isEnabled(Level level) {
+        return this.level.compareTo(level) >= 0;
+    }
+
+    @Override
+    public void summary(String message) {
+        message(Level.SUMMARY, "message", message);
+    }
+
+    @Override
+    public void detail(String message) {
+        message(Level.VERBOSE, "message", message);
+    }
+
+    @Override
+    public void warn(String message) {
+        message(Level.QUIET, "warning", message);
+    }
+
+    @Override
+    public void record(Level level, String type, Map<String, ?> fields) {
+        if (!isEnabled(level)) {
+            return;
+        }
+        ObjectNode node = entry(level, type);
+        for (Map.Entry<String, ?> field : fields.entrySet()) {
+            node.set(field.getKey(), objectMapper.valueToTree(field.getValue()));
+        }
+        write(node);
+    }
+
+    @Override
+    public synchronized void flush() {
+        try {
+            if (arrayGenerator != null) {
+                arrayGenerator.flush();
+            }
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (arrayGenerator != null) {
+                arrayGenerator.writeEndArray();
+                arrayGenerator.close();
+                writer.write(System.lineSeparator());
+            }
+            if (ownsWriter) {
+                writer.close();
+            } else {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void message(Level level, String type, String message) {
+        String text = message.strip();
+        // 分隔线和空行只对终端有意义
+        if (!isEnabled(level) || text.isEmpty() || text.chars().allMatch(c -> c == '=')) {
+            return;
+        }
+        write(entry(level, type).put("message", text));
+    }
+
+    private ObjectNode entry(Level level, String type) {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("time", Instant.now().toString());
+        node.put("type", type);
+        node.put("level", level.name().toLowerCase(Locale.ROOT));
+        return node;
+    }
+
+    private synchronized void write(ObjectNode node) {
+        try {
+            if (lineDelimited) {
+                writer.write(objectMapper.writeValueAsString(node));
+                writer.write('\n');
+            } else {
+                objectMapper.writeTree(arrayGenerator, node);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
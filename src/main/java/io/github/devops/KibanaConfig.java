@@ -2,9 +2,11 @@ package io.github.devops;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 
 /**
@@ -15,9 +17,15 @@ public class KibanaConfig {
     @JsonProperty("kibana")
     private KibanaSettings kibana;
     
+    @JsonProperty("elasticsearch")
+    private ElasticsearchSettings elasticsearch;
+    
     @JsonProperty("project")
     private ProjectSettings project;
     
+    @JsonProperty("projects")
+    private List<ProjectSettings> projects;
+    
     @JsonProperty("settings")
     private AppSettings settings;
     
@@ -40,6 +48,9 @@ public class KibanaConfig {
         @JsonProperty("excludePatterns")
         private List<String> excludePatterns;
         
+        @JsonProperty("dateSuffixFormats")
+        private List<String> dateSuffixFormats;
+        
         // Getters and setters
         public List<String> getProjectPatterns() { return projectPatterns; }
         public void setProjectPatterns(List<String> projectPatterns) { this.projectPatterns = projectPatterns; }
@@ -55,6 +66,9 @@ public class KibanaConfig {
         
         public List<String> getExcludePatterns() { return excludePatterns; }
         public void setExcludePatterns(List<String> excludePatterns) { this.excludePatterns = excludePatterns; }
+        
+        public List<String> getDateSuffixFormats() { return dateSuffixFormats; }
+        public void setDateSuffixFormats(List<String> dateSuffixFormats) { this.dateSuffixFormats = dateSuffixFormats; }
     }
     
     public static class KibanaSettings {
@@ -78,6 +92,30 @@ public class KibanaConfig {
         public void setPassword(String password) { this.password = password; }
     }
     
+    /**
+     * Optional direct Elasticsearch connection for the elasticsearch index source;
+     * username and password default to the Kibana credentials
+     */
+    public static class ElasticsearchSettings {
+        @JsonProperty("baseUrl")
+        private String baseUrl;
+        
+        @JsonProperty("username")
+        private String username;
+        
+        @JsonProperty("password")
+        private String password;
+        
+        public String getBaseUrl() { return baseUrl; }
+        public void setBaseUrl(String baseUrl) { this.baseUrl = baseUrl; }
+        
+        public String getUsername() { return username; }
+        public void setUsername(String username) { this.username = username; }
+        
+        public String getPassword() { return password; }
+        public void setPassword(String password) { this.password = password; }
+    }
+    
     public static class ProjectSettings {
         @JsonProperty("name")
         private String name;
@@ -85,12 +123,18 @@ public class KibanaConfig {
         @JsonProperty("environment")
         private String environment;
         
+        @JsonProperty("indexMatching")
+        private IndexMatchingSettings indexMatching;
+        
         // Getters and setters
         public String getName() { return name; }
         public void setName(String name) { this.name = name; }
         
         public String getEnvironment() { return environment; }
         public void setEnvironment(String environment) { this.environment = environment; }
+        
+        public IndexMatchingSettings getIndexMatching() { return indexMatching; }
+        public void setIndexMatching(IndexMatchingSettings indexMatching) { this.indexMatching = indexMatching; }
     }
     
     public static class AppSettings {
@@ -109,6 +153,99 @@ public class KibanaConfig {
         @JsonProperty("showDetailedMatching")
         private boolean showDetailedMatching = true;
         
+        @JsonProperty("reconcileDataViews")
+        private boolean reconcileDataViews = true;
+        
+        @JsonProperty("upsertDataViews")
+        private boolean upsertDataViews = false;
+        
+        @JsonProperty("indexCacheTtlSeconds")
+        private long indexCacheTtlSeconds = 300;
+        
+        @JsonProperty("indexCacheFile")
+        private String indexCacheFile;
+        
+        @JsonProperty("indexSource")
+        private String indexSource = "kibana";
+        
+        @JsonProperty("daemonIntervalSeconds")
+        private int daemonIntervalSeconds;
+        
+        @JsonProperty("stateFile")
+        private String stateFile;
+        
+        @JsonProperty("stateVerifyHours")
+        private int stateVerifyHours = 24;
+        
+        @JsonProperty("planMode")
+        private String planMode = "off";
+        
+        @JsonProperty("planFile")
+        private String planFile = "kibana-plan.json";
+        
+        @JsonProperty("maxConcurrentRequests")
+        private int maxConcurrentRequests = 8;
+        
+        @JsonProperty("maxConcurrentProjects")
+        private int maxConcurrentProjects = 4;
+        
+        @JsonProperty("maxRetries")
+        private int maxRetries = 3;
+        
+        @JsonProperty("retryBackoffMillis")
+        private long retryBackoffMillis = 500;
+        
+        @JsonProperty("useBulkDelete")
+        private boolean useBulkDelete = true;
+        
+        @JsonProperty("bulkDeleteSize")
+        private int bulkDeleteSize = 500;
+        
+        @JsonProperty("streamDataViews")
+        private boolean streamDataViews;
+        
+        @JsonProperty("dataViewCreateMode")
+        private String dataViewCreateMode = "rpc";
+        
+        @JsonProperty("importChunkSize")
+        private int importChunkSize = 1000;
+        
+        @JsonProperty("dataViewPageSize")
+        private int dataViewPageSize = 1000;
+        
+        @JsonProperty("connectTimeoutSeconds")
+        private long connectTimeoutSeconds = 10;
+        
+        @JsonProperty("requestTimeoutSeconds")
+        private long requestTimeoutSeconds = 60;
+        
+        @JsonProperty("preferHttp2")
+        private boolean preferHttp2 = true;
+        
+        @JsonProperty("httpClientThreads")
+        private int httpClientThreads = 8;
+        
+        @JsonProperty("requestsPerSecond")
+        private double requestsPerSecond = 50;
+        
+        @JsonProperty("maxInFlightRequests")
+        private int maxInFlightRequests = 16;
+        
+        @JsonProperty("metricsFile")
+        private String metricsFile = "kibana-metrics.json";
+        
+        @JsonProperty("prometheusMetricsFile")
+        private String prometheusMetricsFile;
+        
+        @JsonProperty("outputLevel")
+        private String outputLevel;
+        
+        @JsonProperty("outputFormat")
+        private String outputFormat = "text";
+        
+        @JsonProperty("outputFile")
+        private String outputFile;
+        
         // Getters and setters
         public boolean isAutoCreateSpace() { return autoCreateSpace; }
         public void setAutoCreateSpace(boolean autoCreateSpace) { this.autoCreateSpace = autoCreateSpace; }
@@ -124,15 +261,121 @@ public class KibanaConfig {
         
         public boolean isShowDetailedMatching() { return showDetailedMatching; }
         public void setShowDetailedMatching(boolean showDetailedMatching) { this.showDetailedMatching = showDetailedMatching; }
+        
+        public boolean isReconcileDataViews() { return reconcileDataViews; }
+        public void setReconcileDataViews(boolean reconcileDataViews) { this.reconcileDataViews = reconcileDataViews; }
+        
+        public boolean isUpsertDataViews() { return upsertDataViews; }
+        public void setUpsertDataViews(boolean upsertDataViews) { this.upsertDataViews = upsertDataViews; }
+        
+        public long getIndexCacheTtlSeconds() { return indexCacheTtlSeconds; }
+        public void setIndexCacheTtlSeconds(long indexCacheTtlSeconds) { this.indexCacheTtlSeconds = indexCacheTtlSeconds; }
+        
+        public String getIndexCacheFile() { return indexCacheFile; }
+        public void setIndexCacheFile(String indexCacheFile) { this.indexCacheFile = indexCacheFile; }
+        
+        public String getIndexSource() { return indexSource; }
+        public void setIndexSource(String indexSource) { this.indexSource = indexSource; }
+        
+        public int getDaemonIntervalSeconds() { return daemonIntervalSeconds; }
+        public void setDaemonIntervalSeconds(int daemonIntervalSeconds) { this.daemonIntervalSeconds = daemonIntervalSeconds; }
+        
+        public String getStateFile() { return stateFile; }
+        public void setStateFile(String stateFile) { this.stateFile = stateFile; }
+        
+        public int getStateVerifyHours() { return stateVerifyHours; }
+        public void setStateVerifyHours(int stateVerifyHours) { this.stateVerifyHours = stateVerifyHours; }
+        
+        public String getPlanMode() { return planMode; }
+        public void setPlanMode(String planMode) { this.planMode = planMode; }
+        
+        public String getPlanFile() { return planFile; }
+        public void setPlanFile(String planFile) { this.planFile = planFile; }
+        
+        public int getMaxConcurrentRequests() { return maxConcurrentRequests; }
+        public void setMaxConcurrentRequests(int maxConcurrentRequests) { this.maxConcurrentRequests = maxConcurrentRequests; }
+        
+        public int getMaxConcurrentProjects() { return maxConcurrentProjects; }
+        public void setMaxConcurrentProjects(int maxConcurrentProjects) { this.maxConcurrentProjects = maxConcurrentProjects; }
+        
+        public int getMaxRetries() { return maxRetries; }
+        public void setMaxRetries(int maxRetries) { this.maxRetries = maxRetries; }
+        
+        public long getRetryBackoffMillis() { return retryBackoffMillis; }
+        public void setRetryBackoffMillis(long retryBackoffMillis) { this.retryBackoffMillis = retryBackoffMillis; }
+        
+        public boolean isUseBulkDelete() { return useBulkDelete; }
+        public void setUseBulkDelete(boolean useBulkDelete) { this.useBulkDelete = useBulkDelete; }
+        
+        public int getBulkDeleteSize() { return bulkDeleteSize; }
+        public void setBulkDeleteSize(int bulkDeleteSize) { this.bulkDeleteSize = bulkDeleteSize; }
+        
+        public boolean isStreamDataViews() { return streamDataViews; }
+        public void setStreamDataViews(boolean streamDataViews) { this.streamDataViews = streamDataViews; }
+        
+        public String getDataViewCreateMode() { return dataViewCreateMode; }
+        public void setDataViewCreateMode(String dataViewCreateMode) { this.dataViewCreateMode = dataViewCreateMode; }
+        
+        public int getImportChunkSize() { return importChunkSize; }
+        public void setImportChunkSize(int importChunkSize) { this.importChunkSize = importChunkSize; }
+        
+        public int getDataViewPageSize() { return dataViewPageSize; }
+        public void setDataViewPageSize(int dataViewPageSize) { this.dataViewPageSize = dataViewPageSize; }
+        
+        public long getConnectTimeoutSeconds() { return connectTimeoutSeconds; }
+        public void setConnectTimeoutSeconds(long connectTimeoutSeconds) { this.connectTimeoutSeconds = connectTimeoutSeconds; }
+        
+        public long getRequestTimeoutSeconds() { return requestTimeoutSeconds; }
+        public void setRequestTimeoutSeconds(long requestTimeoutSeconds) { this.requestTimeoutSeconds = requestTimeoutSeconds; }
+        
+        public boolean isPreferHttp2() { return preferHttp2; }
+        public void setPreferHttp2(boolean preferHttp2) { this.preferHttp2 = preferHttp2; }
+        
+        public int getHttpClientThreads() { return httpClientThreads; }
+        public void setHttpClientThreads(int httpClientThreads) { this.httpClientThreads = httpClientThreads; }
+        
+        public double getRequestsPerSecond() { return requestsPerSecond; }
+        public void setRequestsPerSecond(double requestsPerSecond) { this.requestsPerSecond = requestsPerSecond; }
+        
+        public int getMaxInFlightRequests() { return maxInFlightRequests; }
+        public void setMaxInFlightRequests(int maxInFlightRequests) { this.maxInFlightRequests = maxInFlightRequests; }
+        
+        public String getMetricsFile() { return metricsFile; }
+        public void setMetricsFile(String metricsFile) { this.metricsFile = metricsFile; }
+        
+        public String getPrometheusMetricsFile() { return prometheusMetricsFile; }
+        public void setPrometheusMetricsFile(String prometheusMetricsFile) { this.prometheusMetricsFile = prometheusMetricsFile; }
+        
+        public String getOutputLevel() { return outputLevel; }
+        public void setOutputLevel(String outputLevel) { this.outputLevel = outputLevel; }
+        
+        public String getOutputFormat() { return outputFormat; }
+        public void setOutputFormat(String outputFormat) { this.outputFormat = outputFormat; }
+        
+        public String getOutputFile() { return outputFile; }
+        public void setOutputFile(String outputFile) { this.outputFile = outputFile; }
     }
     
     // Main getters and setters
     public KibanaSettings getKibana() { return kibana; }
     public void setKibana(KibanaSettings kibana) { this.kibana = kibana; }
     
+    public ElasticsearchSettings getElasticsearch() { return elasticsearch; }
+    public void setElasticsearch(ElasticsearchSettings elasticsearch) { this.elasticsearch = elasticsearch; }
+    
     public ProjectSettings getProject() { return project; }
     public void setProject(ProjectSettings project) { this.project = project; }
     
+    public List<ProjectSettings> getProjects() { return projects; }
+    public void setProjects(List<ProjectSettings> projects) { this.projects = projects; }
+    
+    /**
+     * Check whether multiple projects are configured for fleet mode
+     */
+    public boolean isFleetMode() {
+        return projects != null && !projects.isEmpty();
+    }
+    
     public AppSettings getSettings() { return settings; }
     public void setSettings(AppSettings settings) { this.settings = settings; }
     
@@ -143,7 +386,7 @@ public class KibanaConfig {
      * Load configuration from YAML file
      */
     public static KibanaConfig loadFromYaml(String configPath) throws Exception {
-        ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
+        ObjectMapper mapper = ObjectMappers.yaml();
         
         try (InputStream inputStream = KibanaConfig.class.getClassLoader().getResourceAsStream(configPath)) {
             if (inputStream == null) {
@@ -153,6 +396,28 @@ public class KibanaConfig {
         }
     }
     
+    /**
+     * Load configuration from a YAML file on disk
+     */
+    public static KibanaConfig loadFromFile(Path configFile) throws Exception {
+        ObjectMapper mapper = ObjectMappers.yaml();
+        
+        try (InputStream inputStream = Files.newInputStream(configFile)) {
+            return mapper.readValue(inputStream, KibanaConfig.class);
+        }
+    }
+    
+    /**
+     * External configuration file given as first argument or in KIBANA_CONFIG, or null
+     */
+    public static Path externalConfigPath(String[] args) {
+        if (args != null && args.length > 0 && !args[0].isBlank()) {
+            return Paths.get(args[0]);
+        }
+        String fromEnv = System.getenv("KIBANA_CONFIG");
+        return fromEnv != null && !fromEnv.isBlank() ? Paths.get(fromEnv) : null;
+    }
+    
     /**
      * Load default configuration
      */
@@ -0,0 +1,42 @@
+package io.github.devops;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.InputStream;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Index source backed by Kibana's /api/index_management/indices, which always
+ * returns every index of the cluster
+ */
+public class KibanaIndexSource implements IndexSource {
+    private final KibanaTransport transport;
+    private final ObjectMapper objectMapper;
+
+    public KibanaIndexSource(KibanaTransport transport, ObjectMapper objectMapper) {
+        this.transport = transport;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public IndexNameIterator open(String pattern) throws Exception {
+        HttpResponse<InputStream> response = transport.send(
+                transport.get("/api/index_management/indices"), HttpResponse.BodyHandlers.ofInputStream(), true);
+
+        if (response.statusCode() == 200) {
+            return new IndexNameIterator(objectMapper.getFactory(), response.body());
+        } else {
+            String body;
+            try (InputStream errorStream = response.body()) {
+                body = new String(errorStream.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            throw new RuntimeException("Failed to fetch indices: " + response.statusCode() + " - " + body);
+        }
+    }
+
+    @Override
+    public boolean supportsPatterns() {
+        return false;
+    }
+}
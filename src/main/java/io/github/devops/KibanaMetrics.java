@@ -0,0 +1,430 @@
+package io.github.devops;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Metrics for the Kibana API calls of a run.
+ *
+ * Requests are grouped by endpoint (method plus path with space and object names
+ * replaced by placeholders) and record latency histograms, status counts, errors,
+ * retries and bytes received. In addition the number of requests in flight and the
+ * time spent in each provisioning phase are tracked. All recording is lock-free, so
+ * one instance can be shared by every request of a {@link KibanaTransport}.
+ */
+public class KibanaMetrics {
+    /**
+     * Upper bounds of the latency histogram buckets in milliseconds
+     */
+    private static final long[] BUCKET_BOUNDS_MILLIS = {5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000};
+
+    /**
+     * Path prefixes followed by an object name that is replaced by {id}
+     */
+    private static final String[] ID_PREFIXES = {
+            "/api/spaces/space/",
+            "/api/security/role/",
+            "/internal/security/users/",
+            "/_cat/indices/"
+    };
+
+    private final long startedAt = System.currentTimeMillis();
+    private final ConcurrentMap<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, PhaseMetrics> phases = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAccumulator maxInFlight = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Get the endpoint name a request is grouped under, e.g. {@code POST /s/{space}/api/content_management/rpc/create}
+     */
+    public static String endpointOf(HttpRequest request) {
+        URI uri = request.uri();
+        String path = uri.getRawPath() != null ? uri.getRawPath() : "";
+        if (path.startsWith("/s/")) {
+            int end = path.indexOf('/', 3);
+            path = "/s/{space}" + (end >= 0 ? path.substring(end) : "");
+        }
+        for (String prefix : ID_PREFIXES) {
+            if (path.startsWith(prefix) && path.length() > prefix.length()) {
+                path = prefix + "{id}";
+                break;
+            }
+        }
+        return request.method() + " " + path;
+    }
+
+    /**
+     * Mark a request as sent; must be paired with {@link #recordResponse} or {@link #recordFailure}
+     */
+    public void requestStarted() {
+        maxInFlight.accumulate(inFlight.incrementAndGet());
+    }
+
+    public void recordResponse(String endpoint, int statusCode, long latencyNanos) {
+        inFlight.decrementAndGet();
+        EndpointMetrics metrics = endpoint(endpoint);
+        metrics.latency.record(latencyNanos);
+        metrics.statusCounts.computeIfAbsent(statusCode, code -> new LongAdder()).increment();
+        if (statusCode >= 400) {
+            metrics.errors.increment();
+        }
+    }
+
+    /**
+     * Record a request that failed without a response, e.g. a timeout or connection error
+     */
+    public void recordFailure(String endpoint, long latencyNanos) {
+        inFlight.decrementAndGet();
+        EndpointMetrics metrics = endpoint(endpoint);
+        metrics.latency.record(latencyNanos);
+        metrics.failures.increment();
+        metrics.errors.increment();
+    }
+
+    public void recordRetry(String endpoint) {
+        endpoint(endpoint).retries.increment();
+    }
+
+    /**
+     * Wrap a body handler so that the received body bytes are counted as they arrive,
+     * which also works for streamed bodies
+     */
+    public <T> HttpResponse.BodyHandler<T> countingBytes(String endpoint, HttpResponse.BodyHandler<T> bodyHandler) {
+        LongAdder bytesReceived = endpoint(endpoint).bytesReceived;
+        return responseInfo -> new CountingBodySubscriber<>(bodyHandler.apply(responseInfo), bytesReceived);
+    }
+
+    /**
+     * Add time spent in a provisioning phase such as fetch, classify, delete or create
+     */
+    public void recordPhase(String phase, long nanos) {
+        PhaseMetrics metrics = phases.computeIfAbsent(phase, name -> new PhaseMetrics());
+        metrics.runs.increment();
+        metrics.totalNanos.add(nanos);
+        metrics.maxNanos.accumulate(nanos);
+    }
+
+    /**
+     * Time a phase and return its result: {@code report = metrics.time("create", () -> ...)}
+     */
+    public <T, E extends Exception> T time(String phase, PhaseBody<T, E> body) throws E {
+        long start = System.nanoTime();
+        try {
+            return body.call();
+        } finally {
+            recordPhase(phase, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Time a phase without a result: {@code metrics.time("space", this::createSpace)}
+     */
+    public <E extends Exception> void time(String phase, PhaseAction<E> action) throws E {
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } finally {
+            recordPhase(phase, System.nanoTime() - start);
+        }
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private EndpointMetrics endpoint(String endpoint) {
+        return endpoints.computeIfAbsent(endpoint, name -> new EndpointMetrics());
+    }
+
+    /**
+     * Build the JSON report of all metrics recorded so far
+     */
+    public ObjectNode toJson(ObjectMapper objectMapper) {
+        ObjectNode report = objectMapper.createObjectNode();
+        report.put("startedAt", Instant.ofEpochMilli(startedAt).toString());
+        report.put("elapsedMillis", System.currentTimeMillis() - startedAt);
+        report.put("inFlight", inFlight.get());
+        report.put("maxInFlight", maxInFlight.get());
+
+        ObjectNode endpointsNode = report.putObject("endpoints");
+        for (Map.Entry<String, EndpointMetrics> entry : new TreeMap<>(endpoints).entrySet()) {
+            EndpointMetrics metrics = entry.getValue();
+            ObjectNode endpointNode = endpointsNode.putObject(entry.getKey());
+            endpointNode.put("requests", metrics.latency.count());
+            endpointNode.put("errors", metrics.errors.sum());
+            endpointNode.put("failures", metrics.failures.sum());
+            endpointNode.put("retries", metrics.retries.sum());
+            endpointNode.put("bytesReceived", metrics.bytesReceived.sum());
+
+            ObjectNode statusNode = endpointNode.putObject("status");
+            for (Map.Entry<Integer, LongAdder> status : new TreeMap<>(metrics.statusCounts).entrySet()) {
+                statusNode.put(String.valueOf(status.getKey()), status.getValue().sum());
+            }
+
+            Histogram latency = metrics.latency;
+            ObjectNode latencyNode = endpointNode.putObject("latencyMillis");
+            latencyNode.put("mean", latency.count() > 0 ? toMillis(latency.sumNanos.sum()) / latency.count() : 0);
+            latencyNode.put("p50", latency.percentileMillis(0.50));
+            latencyNode.put("p90", latency.percentileMillis(0.90));
+            latencyNode.put("p99", latency.percentileMillis(0.99));
+            latencyNode.put("max", toMillis(latency.maxNanos.get()));
+            ObjectNode bucketsNode = latencyNode.putObject("buckets");
+            for (int i = 0; i <= BUCKET_BOUNDS_MILLIS.length; i++) {
+                String bound = i < BUCKET_BOUNDS_MILLIS.length ? String.valueOf(BUCKET_BOUNDS_MILLIS[i]) : "+Inf";
+                bucketsNode.put(bound, latency.buckets.get(i));
+            }
+        }
+
+        ObjectNode phasesNode = report.putObject("phases");
+        for (Map.Entry<String, PhaseMetrics> entry : new TreeMap<>(phases).entrySet()) {
+            PhaseMetrics metrics = entry.getValue();
+            ObjectNode phaseNode = phasesNode.putObject(entry.getKey());
+            phaseNode.put("runs", metrics.runs.sum());
+            phaseNode.put("totalMillis", toMillis(metrics.totalNanos.sum()));
+            phaseNode.put("maxMillis", toMillis(metrics.maxNanos.get()));
+        }
+        return report;
+    }
+
+    /**
+     * Write all metrics in the Prometheus text exposition format
+     */
+    public void writePrometheus(Writer writer) throws IOException {
+        Map<String, EndpointMetrics> sorted = new TreeMap<>(endpoints);
+
+        writer.write("# HELP kibana_helper_requests_total Kibana API requests by endpoint and status.\n");
+        writer.write("# TYPE kibana_helper_requests_total counter\n");
+        for (Map.Entry<String, EndpointMetrics> entry : sorted.entrySet()) {
+            for (Map.Entry<Integer, LongAdder> status : new TreeMap<>(entry.getValue().statusCounts).entrySet()) {
+                writer.write("kibana_helper_requests_total{endpoint=\"" + escape(entry.getKey()) + "\",status=\""
+                        + status.getKey() + "\"} " + status.getValue().sum() + "\n");
+            }
+        }
+
+        writeCounter(writer, sorted, "kibana_helper_request_errors_total",
+                "Kibana API requests that failed or returned 4xx/5xx.", metrics -> metrics.errors.sum());
+        writeCounter(writer, sorted, "kibana_helper_request_failures_total",
+                "Kibana API requests that failed without a response.", metrics -> metrics.failures.sum());
+        writeCounter(writer, sorted, "kibana_helper_request_retries_total",
+                "Kibana API request retries.", metrics -> metrics.retries.sum());
+        writeCounter(writer, sorted, "kibana_helper_response_bytes_total",
+                "Response body bytes received from Kibana.", metrics -> metrics.bytesReceived.sum());
+
+        writer.write("# HELP kibana_helper_request_duration_seconds Kibana API request latency.\n");
+        writer.write("# TYPE kibana_helper_request_duration_seconds histogram\n");
+        for (Map.Entry<String, EndpointMetrics> entry : sorted.entrySet()) {
+            String endpoint = escape(entry.getKey());
+            Histogram latency = entry.getValue().latency;
+            long cumulative = 0;
+            for (int i = 0; i <= BUCKET_BOUNDS_MILLIS.length; i++) {
+                cumulative += latency.buckets.get(i);
+                String bound = i < BUCKET_BOUNDS_MILLIS.length ? String.valueOf(BUCKET_BOUNDS_MILLIS[i] / 1000.0) : "+Inf";
+                writer.write("kibana_helper_request_duration_seconds_bucket{endpoint=\"" + endpoint + "\",le=\""
+                        + bound + "\"} " + cumulative + "\n");
+            }
+            writer.write("kibana_helper_request_duration_seconds_sum{endpoint=\"" + endpoint + "\"} "
+                    + latency.sumNanos.sum() / 1e9 + "\n");
+            writer.write("kibana_helper_request_duration_seconds_count{endpoint=\"" + endpoint + "\"} "
+                    + latency.count() + "\n");
+        }
+
+        writer.write("# HELP kibana_helper_requests_in_flight Kibana API requests currently in flight.\n");
+        writer.write("# TYPE kibana_helper_requests_in_flight gauge\n");
+        writer.write("kibana_helper_requests_in_flight " + inFlight.get() + "\n");
+        writer.write("# HELP kibana_helper_requests_in_flight_max Highest number of Kibana API requests in flight.\n");
+        writer.write("# TYPE kibana_helper_requests_in_flight_max gauge\n");
+        writer.write("kibana_helper_requests_in_flight_max " + maxInFlight.get() + "\n");
+
+        writer.write("# HELP kibana_helper_phase_duration_seconds_total Time spent in each provisioning phase.\n");
+        writer.write("# TYPE kibana_helper_phase_duration_seconds_total counter\n");
+        for (Map.Entry<String, PhaseMetrics> entry : new TreeMap<>(phases).entrySet()) {
+            writer.write("kibana_helper_phase_duration_seconds_total{phase=\"" + escape(entry.getKey()) + "\"} "
+                    + entry.getValue().totalNanos.sum() / 1e9 + "\n");
+        }
+    }
+
+    /**
+     * Write the JSON report and the Prometheus text file to the paths configured in the settings
+     */
+    public void export(KibanaConfig.AppSettings settings, Reporter reporter) {
+        Path jsonFile = settings.getMetricsFile() != null ? Paths.get(settings.getMetricsFile()) : null;
+        Path prometheusFile = settings.getPrometheusMetricsFile() != null ? Paths.get(settings.getPrometheusMetricsFile()) : null;
+        ObjectMapper objectMapper = ObjectMappers.json();
+
+        if (jsonFile != null) {
+            try {
+                objectMapper.writerWithDefaultPrettyPrinter().writeValue(jsonFile.toFile(), toJson(objectMapper));
+                reporter.summary("📈 Metrics written to " + jsonFile);
+            } catch (IOException e) {
+                reporter.warn("⚠️ Failed to write metrics to " + jsonFile + ": " + e.getMessage());
+            }
+        }
+        if (prometheusFile != null) {
+            try (Writer writer = Files.newBufferedWriter(prometheusFile, StandardCharsets.UTF_8)) {
+                writePrometheus(writer);
+                reporter.summary("📈 Prometheus metrics written to " + prometheusFile);
+            } catch (IOException e) {
+                reporter.warn("⚠️ Failed to write metrics to " + prometheusFile + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static void writeCounter(Writer writer, Map<String, EndpointMetrics> endpoints, String name, String help,
+                                     ToLongFunction<EndpointMetrics> value) throws IOException {
+        writer.write("# HELP " + name + " " + help + "\n");
+        writer.write("# TYPE " + name + " counter\n");
+        for (Map.Entry<String, EndpointMetrics> entry : endpoints.entrySet()) {
+            writer.write(name + "{endpoint=\"" + escape(entry.getKey()) + "\"} " + value.applyAsLong(entry.getValue()) + "\n");
+        }
+    }
+
+    private static String escape(String label) {
+        return label.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    /**
+     * Work of a timed phase that produces a result
+     */
+    @FunctionalInterface
+    public interface PhaseBody<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    /**
+     * Work of a timed phase without a result
+     */
+    @FunctionalInterface
+    public interface PhaseAction<E extends Exception> {
+        void run() throws E;
+    }
+
+    private static final class CountingBodySubscriber<T> implements HttpResponse.BodySubscriber<T> {
+        private final HttpResponse.BodySubscriber<T> delegate;
+        private final LongAdder bytesReceived;
+
+        private CountingBodySubscriber(HttpResponse.BodySubscriber<T> delegate, LongAdder bytesReceived) {
+            this.delegate = delegate;
+            this.bytesReceived = bytesReceived;
+        }
+
+        @Override
+        public CompletionStage<T> getBody() {
+            return delegate.getBody();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            delegate.onSubscribe(subscription);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            for (ByteBuffer buffer : buffers) {
+                bytesReceived.add(buffer.remaining());
+            }
+            delegate.onNext(buffers);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            delegate.onError(error);
+        }
+
+        @Override
+        public void onComplete() {
+            delegate.onComplete();
+        }
+    }
+
+    private static final class EndpointMetrics {
+        private final Histogram latency = new Histogram();
+        private final ConcurrentMap<Integer, LongAdder> statusCounts = new ConcurrentHashMap<>();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder bytesReceived = new LongAdder();
+    }
+
+    private static final class PhaseMetrics {
+        private final LongAdder runs = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    }
+
+    /**
+     * Fixed-bucket latency histogram; the last bucket counts everything above the largest bound
+     */
+    private static final class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS_MILLIS.length + 1);
+        private final LongAdder sumNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        void record(long nanos) {
+            long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS_MILLIS.length && millis > BUCKET_BOUNDS_MILLIS[bucket]) {
+                bucket++;
+            }
+            buckets.incrementAndGet(bucket);
+            sumNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        long count() {
+            long count = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                count += buckets.get(i);
+            }
+            return count;
+        }
+
+        /**
+         * Estimate a percentile as the upper bound of the bucket it falls into, capped by the maximum
+         */
+        double percentileMillis(double percentile) {
+            long count = count();
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(percentile * count);
+            long seen = 0;
+            double max = toMillis(maxNanos.get());
+            for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(BUCKET_BOUNDS_MILLIS[i], max);
+                }
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package io.github.devops;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+
+/**
+ * Shared HTTP transport for the Kibana API.
+ *
+ * One instance owns a tuned {@link HttpClient} (connect timeout, HTTP/2 preference,
+ * bounded executor) and the precomputed Basic auth header, and is meant to be shared
+ * by every {@link KibanaUtils} talking to the same Kibana. All requests are built here,
+ * and every request passes through an {@link AdaptiveRateLimiter} so that parallel
+ * provisioning backs off when Kibana pushes back, and is recorded in {@link KibanaMetrics}.
+ */
+public class KibanaTransport implements AutoCloseable {
+    private final String baseUrl;
+    private final String authHeader;
+    private final Duration requestTimeout;
+    private final int maxRetries;
+    private final long retryBackoffMillis;
+    private final ExecutorService executor;
+    private final HttpClient httpClient;
+    private final AdaptiveRateLimiter rateLimiter;
+    private final KibanaMetrics metrics = new KibanaMetrics();
+
+    public KibanaTransport(String baseUrl, String username, String password, KibanaConfig.AppSettings settings) {
+        KibanaConfig.AppSettings effective = settings != null ? settings : new KibanaConfig.AppSettings();
+        this.baseUrl = baseUrl;
+        this.authHeader = "Basic " + Base64.getEncoder().encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+        this.requestTimeout = Duration.ofSeconds(Math.max(1, effective.getRequestTimeoutSeconds()));
+        this.maxRetries = Math.max(0, effective.getMaxRetries());
+        this.retryBackoffMillis = Math.max(1, effective.getRetryBackoffMillis());
+        this.executor = Executors.newFixedThreadPool(Math.max(1, effective.getHttpClientThreads()), daemonThreads());
+        this.httpClient = createHttpClient(effective, executor);
+        this.rateLimiter = new AdaptiveRateLimiter(effective.getRequestsPerSecond(), effective.getMaxInFlightRequests());
+    }
+
+    /**
+     * Create a transport from the Kibana connection and application settings
+     */
+    public static KibanaTransport fromConfig(KibanaConfig config) {
+        return new KibanaTransport(
+                config.getKibana().getBaseUrl(),
+                config.getKibana().getUsername(),
+                config.getKibana().getPassword(),
+                config.getSettings()
+        );
+    }
+
+    /**
+     * Create HTTP client with SSL verification disabled
+     */
+    private static HttpClient createHttpClient(KibanaConfig.AppSettings settings, Executor executor) {
+        // 显式传入 SSL 上下文，HttpClient 不会再加载 JDK 默认信任库
+        return HttpClient.newBuilder()
+                .sslContext(TrustAllSsl.CONTEXT)
+                .version(settings.isPreferHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(Math.max(1, settings.getConnectTimeoutSeconds())))
+                .executor(executor)
+                .build();
+    }
+
+    /**
+     * Trust-all SSL context (for testing only!), created once per JVM when the first
+     * client is built and shared by every transport, e.g. Kibana and Elasticsearch
+     */
+    private static final class TrustAllSsl {
+        private static final SSLContext CONTEXT = create();
+
+        private static SSLContext create() {
+            TrustManager[] trustAllCerts = new TrustManager[] {
+                    new X509TrustManager() {
+                        public X509Certificate[] getAcceptedIssuers() { return null; }
+                        public void checkClientTrusted(X509Certificate[] certs, String authType) {}
+                        public void checkServerTrusted(X509Certificate[] certs, String authType) {}
+                    }
+            };
+            try {
+                SSLContext sslContext = SSLContext.getInstance("SSL");
+                sslContext.init(null, trustAllCerts, new java.security.SecureRandom());
+                return sslContext;
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to create HTTP client", e);
+            }
+        }
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "kibana-http-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public KibanaMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Start a request for a Kibana API path with the common headers and timeout
+     */
+    public HttpRequest.Builder newRequest(String path) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + path))
+                .timeout(requestTimeout)
+                .header("Authorization", authHeader)
+                .header("kbn-xsrf", "true");
+    }
+
+    public HttpRequest get(String path) {
+        return newRequest(path).GET().build();
+    }
+
+    public HttpRequest postJson(String path, String body) {
+        return newRequest(path)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    /**
+     * POST a body of the given content type, e.g. a streamed multipart upload
+     */
+    public HttpRequest post(String path, String contentType, HttpRequest.BodyPublisher body) {
+        return newRequest(path)
+                .header("Content-Type", contentType)
+                .POST(body)
+                .build();
+    }
+
+    public HttpRequest putJson(String path, String body) {
+        return newRequest(path)
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    /**
+     * Send a request once and buffer the response body as a string
+     */
+    public HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Send a request once with a custom body handler, e.g. to stream the response
+     */
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler)
+            throws IOException, InterruptedException {
+        CompletableFuture<Void> admission = rateLimiter.acquire();
+        try {
+            admission.get();
+        } catch (InterruptedException e) {
+            if (!admission.cancel(false)) {
+                rateLimiter.abandon();
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+        String endpoint = KibanaMetrics.endpointOf(request);
+        metrics.requestStarted();
+        long start = System.nanoTime();
+        try {
+            HttpResponse<T> response = httpClient.send(request, metrics.countingBytes(endpoint, bodyHandler));
+            completed(endpoint, response, System.nanoTime() - start);
+            return response;
+        } catch (IOException | RuntimeException | InterruptedException e) {
+            completed(endpoint, null, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    /**
+     * Send a request and wait for the response, retrying transient failures like {@link #sendWithRetry}
+     */
+    public HttpResponse<String> send(HttpRequest request, boolean idempotent) throws IOException {
+        return send(request, HttpResponse.BodyHandlers.ofString(), idempotent);
+    }
+
+    /**
+     * Send a request with a custom body handler and wait for the response, retrying transient failures
+     */
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler, boolean idempotent)
+            throws IOException {
+        try {
+            return sendWithRetry(request, bodyHandler, idempotent).join();
+        } catch (CompletionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Send a request asynchronously, retrying transient failures with exponential backoff and jitter,
+     * or after the server's Retry-After if that is longer. 429/503 responses are always retried since
+     * the server rejected the request unprocessed; 502/504 and I/O errors only for idempotent requests.
+     */
+    public CompletableFuture<HttpResponse<String>> sendWithRetry(HttpRequest request, boolean idempotent) {
+        return sendWithRetry(request, HttpResponse.BodyHandlers.ofString(), idempotent, 0);
+    }
+
+    /**
+     * Send a request asynchronously with a custom body handler, retrying like {@link #sendWithRetry(HttpRequest, boolean)}
+     */
+    public <T> CompletableFuture<HttpResponse<T>> sendWithRetry(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler,
+                                                                boolean idempotent) {
+        return sendWithRetry(request, bodyHandler, idempotent, 0);
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> sendWithRetry(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler,
+                                                                 boolean idempotent, int attempt) {
+        String endpoint = KibanaMetrics.endpointOf(request);
+        return rateLimiter.acquire()
+                .thenCompose(ignored -> {
+                    metrics.requestStarted();
+                    long start = System.nanoTime();
+                    return httpClient.sendAsync(request, metrics.countingBytes(endpoint, bodyHandler))
+                            .whenComplete((response, error) -> completed(endpoint, response, System.nanoTime() - start));
+                })
+                .handle((response, error) -> {
+                    if (attempt < maxRetries && isTransientFailure(response, error, idempotent)) {
+                        metrics.recordRetry(endpoint);
+                        discard(response);
+                        long backoff = retryBackoffMillis << attempt;
+                        long delay = Math.max(ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1),
+                                response != null ? retryAfterMillis(response) : 0);
+                        Executor delayed = CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, executor);
+                        return CompletableFuture.runAsync(() -> {}, delayed)
+                                .thenCompose(next -> sendWithRetry(request, bodyHandler, idempotent, attempt + 1));
+                    }
+                    return error != null
+                            ? CompletableFuture.<HttpResponse<T>>failedFuture(unwrap(error))
+                            : CompletableFuture.completedFuture(response);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * Feed the outcome of a sent request, or null if it failed, to the rate limiter and metrics
+     */
+    private void completed(String endpoint, HttpResponse<?> response, long latencyNanos) {
+        if (response != null) {
+            metrics.recordResponse(endpoint, response.statusCode(), latencyNanos);
+            rateLimiter.release(response.statusCode(), latencyNanos, retryAfterMillis(response));
+        } else {
+            metrics.recordFailure(endpoint, latencyNanos);
+            rateLimiter.release(-1, latencyNanos, 0);
+        }
+    }
+
+    /**
+     * Release the body of a response that is going to be retried, e.g. an unread stream
+     */
+    private static void discard(HttpResponse<?> response) {
+        if (response != null && response.body() instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) response.body()).close();
+            } catch (Exception ignored) {
+                // 连接会被丢弃，无需处理
+            }
+        }
+    }
+
+    private static boolean isTransientFailure(HttpResponse<?> response, Throwable error, boolean idempotent) {
+        if (error != null) {
+            return idempotent && unwrap(error) instanceof IOException;
+        }
+        int status = response.statusCode();
+        return status == 429 || status == 503 || (idempotent && (status == 502 || status == 504));
+    }
+
+    /**
+     * Parse the Retry-After header, given either in seconds or as an HTTP date
+     */
+    static long retryAfterMillis(HttpResponse<?> response) {
+        String value = response.headers().firstValue("Retry-After").orElse(null);
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+        try {
+            return Math.max(0, TimeUnit.SECONDS.toMillis(Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime retryAt = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, Duration.between(ZonedDateTime.now(retryAt.getZone()), retryAt).toMillis());
+            } catch (RuntimeException ignored) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Unwrap the cause of a failed future
+     */
+    public static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    @Override
+    public void close() {
+        rateLimiter.close();
+        executor.shutdown();
+    }
+}
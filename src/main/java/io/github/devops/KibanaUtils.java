@@ -2,13 +2,19 @@ package io.github.devops;
 
 import java.io.*;
 import java.net.http.*;
-import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
-import javax.net.ssl.*;
-import java.security.cert.X509Certificate;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -18,25 +24,47 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
  * Java implementation of KibanaUtils for interacting with Kibana API
  */
 public class KibanaUtils {
+    private static final int MAX_DATA_VIEW_PAGE_SIZE = 10_000;
+
     private final String baseUrl;
-    private final String username;
-    private final String password;
     private final String projectName;
     private final String projectEnv;
     private final String spaceName;
-    private final HttpClient httpClient;
     private final ObjectMapper objectMapper;
+    private KibanaTransport transport;
+    private final boolean ownsTransport;
     private KibanaConfig config;
+    private IndexMatcher indexMatcher;
+    private BaseNameExtractor baseNameExtractor = BaseNameExtractor.defaults();
+    private IndexListCache indexCache;
+    private Boolean bulkDeleteSupported;
+    private Reporter reporter = Reporter.console(Reporter.Level.VERBOSE);
+    private boolean reporterSet;
+    private IndexSource indexSource;
+    private boolean indexSourceSet;
+    private StateStore stateStore;
 
     public KibanaUtils(String projectName, String projectEnv, String baseUrl, String username, String password) {
+        this(projectName, projectEnv, new KibanaTransport(baseUrl, username, password, null), true);
+    }
+
+    /**
+     * Create an instance on a shared transport, e.g. across projects in fleet mode
+     */
+    public KibanaUtils(String projectName, String projectEnv, KibanaTransport transport) {
+        this(projectName, projectEnv, transport, false);
+    }
+
+    private KibanaUtils(String projectName, String projectEnv, KibanaTransport transport, boolean ownsTransport) {
         this.projectName = projectName;
         this.projectEnv = projectEnv;
-        this.baseUrl = baseUrl;
-        this.username = username;
-        this.password = password;
+        this.baseUrl = transport.getBaseUrl();
         this.spaceName = (projectName + "-" + projectEnv).toLowerCase();
-        this.objectMapper = new ObjectMapper();
-        this.httpClient = createHttpClient();
+        this.objectMapper = ObjectMappers.json();
+        this.transport = transport;
+        this.ownsTransport = ownsTransport;
+        this.indexMatcher = IndexMatcher.forProject(projectName, projectEnv);
+        this.indexCache = new IndexListCache(baseUrl, Duration.ofSeconds(300), null, objectMapper);
     }
     
     /**
@@ -44,99 +72,155 @@ public class KibanaUtils {
      */
     public void setConfig(KibanaConfig config) {
         this.config = config;
+        if (config != null && config.getSettings() != null) {
+            KibanaConfig.AppSettings settings = config.getSettings();
+            Path snapshotFile = settings.getIndexCacheFile() != null ? Paths.get(settings.getIndexCacheFile()) : null;
+            this.indexCache = new IndexListCache(baseUrl, Duration.ofSeconds(settings.getIndexCacheTtlSeconds()), snapshotFile, objectMapper);
+            if (!reporterSet) {
+                this.reporter = Reporter.console(Reporter.levelOf(settings));
+            }
+            indexCache.setReporter(reporter);
+            // 自行创建的传输层按配置的超时和重试参数重建
+            if (ownsTransport && config.getKibana() != null) {
+                this.transport.close();
+                this.transport = KibanaTransport.fromConfig(config);
+            }
+            // 索引来源在首次使用时按新配置创建
+            if (!indexSourceSet && indexSource != null) {
+                indexSource.close();
+                this.indexSource = null;
+            }
+        }
+        if (config != null && config.getIndexMatching() != null) {
+            this.indexMatcher = IndexMatcher.fromSettings(config.getIndexMatching());
+            if (config.getIndexMatching().getDateSuffixFormats() != null) {
+                this.baseNameExtractor = new BaseNameExtractor(config.getIndexMatching().getDateSuffixFormats());
+            }
+        } else {
+            this.indexMatcher = IndexMatcher.forProject(projectName, projectEnv);
+        }
     }
-    
+
     /**
-     * Get the space name (for debugging/verification)
+     * Send all output to the given reporter, e.g. one shared by every project of a fleet
      */
-    public String getSpaceName() {
-        return this.spaceName;
+    public void setReporter(Reporter reporter) {
+        this.reporter = reporter;
+        this.reporterSet = true;
+        indexCache.setReporter(reporter);
+    }
+
+    public Reporter getReporter() {
+        return reporter;
     }
 
     /**
-     * Create HTTP client with SSL verification disabled and basic auth
+     * Read the index list from the given source, which the caller closes
      */
-    private HttpClient createHttpClient() {
-        try {
-            // Create trust-all SSL context (for testing only!)
-            TrustManager[] trustAllCerts = new TrustManager[] {
-                    new X509TrustManager() {
-                        public X509Certificate[] getAcceptedIssuers() { return null; }
-                        public void checkClientTrusted(X509Certificate[] certs, String authType) {}
-                        public void checkServerTrusted(X509Certificate[] certs, String authType) {}
-                    }
-            };
+    public void setIndexSource(IndexSource indexSource) {
+        if (!indexSourceSet && this.indexSource != null) {
+            this.indexSource.close();
+        }
+        this.indexSource = indexSource;
+        this.indexSourceSet = true;
+    }
 
-            SSLContext sslContext = SSLContext.getInstance("SSL");
-            sslContext.init(null, trustAllCerts, new java.security.SecureRandom());
+    /**
+     * Record provisioned resources in the given state store and trust it instead of
+     * reading them from Kibana while it is fresh; the caller closes the store
+     */
+    public void setStateStore(StateStore stateStore) {
+        this.stateStore = stateStore;
+    }
 
-            return HttpClient.newBuilder()
-                    .sslContext(sslContext)
-                    .build();
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to create HTTP client", e);
+    /**
+     * Get the index source, created from the configuration on first use
+     */
+    private IndexSource indexSource() {
+        if (indexSource == null) {
+            indexSource = config != null && config.getKibana() != null
+                    ? IndexSource.fromConfig(config, transport, objectMapper)
+                    : new KibanaIndexSource(transport, objectMapper);
         }
+        return indexSource;
+    }
+    
+    /**
+     * Override the index matcher, e.g. with per-project patterns in fleet mode
+     */
+    public void setIndexMatcher(IndexMatcher indexMatcher) {
+        this.indexMatcher = indexMatcher;
     }
 
     /**
-     * Create basic auth header
+     * Use other date suffix formats for base names, e.g. after a configuration reload
      */
-    private String getBasicAuthHeader() {
-        String auth = username + ":" + password;
-        return "Basic " + Base64.getEncoder().encodeToString(auth.getBytes());
+    public void setBaseNameExtractor(BaseNameExtractor baseNameExtractor) {
+        this.baseNameExtractor = baseNameExtractor;
+    }
+    
+    /**
+     * Get the space name (for debugging/verification)
+     */
+    public String getSpaceName() {
+        return this.spaceName;
     }
 
     /**
      * Ensure the Kibana space exists
      */
     public void ensureSpace() throws Exception {
-        String url = baseUrl + "/api/spaces/space/" + spaceName;
-
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Authorization", getBasicAuthHeader())
-                .header("kbn-xsrf", "true")
-                .GET()
-                .build();
+        if (stateStore != null && stateStore.isSpaceFresh(spaceName)) {
+            reporter.detail("ℹ️ Space " + spaceName + " known from state, skipping check.");
+            return;
+        }
+        getMetrics().time("space", () -> {
+            if (!spaceExists()) {
+                // Space doesn't exist, create it
+                createSpace();
+            } else {
+                reporter.summary("ℹ️ Space " + spaceName + " already exists, skipping creation.");
+            }
+        });
+        if (stateStore != null) {
+            stateStore.recordSpace(spaceName);
+        }
+    }
 
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    /**
+     * Check whether the Kibana space exists
+     */
+    private boolean spaceExists() throws Exception {
+        HttpResponse<String> response = transport.send(transport.get("/api/spaces/space/" + spaceName), true);
 
         if (response.statusCode() == 404) {
-            // Space doesn't exist, create it
-            createSpace();
+            return false;
         } else if (response.statusCode() == 200) {
-            System.out.println("ℹ️ Space " + spaceName + " already exists, skipping creation.");
-        } else {
-            System.out.println("❌ Error checking space: " + response.statusCode() + " - " + response.body());
+            return true;
         }
+        throw new RuntimeException("Error checking space " + spaceName + ": " + response.statusCode() + " - " + response.body());
     }
 
     /**
      * Create a new Kibana space
      */
     private void createSpace() throws Exception {
-        String url = baseUrl + "/api/spaces/space";
-
         ObjectNode createBody = objectMapper.createObjectNode();
         createBody.put("id", spaceName);
         createBody.put("name", capitalize(spaceName));
         createBody.put("description", "Space for " + projectName + " " + projectEnv);
         createBody.set("disabledFeatures", objectMapper.createArrayNode());
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Authorization", getBasicAuthHeader())
-                .header("Content-Type", "application/json")
-                .header("kbn-xsrf", "true")
-                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(createBody)))
-                .build();
-
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        // 重复创建会返回 409，因此可以安全重试
+        HttpResponse<String> response = transport.send(
+                transport.postJson("/api/spaces/space", objectMapper.writeValueAsString(createBody)), true);
 
         if (response.statusCode() >= 200 && response.statusCode() < 300) {
-            System.out.println("✅ Space " + spaceName + " created successfully!");
+            reporter.summary("✅ Space " + spaceName + " created successfully!");
+        } else if (response.statusCode() == 409) {
+            reporter.summary("ℹ️ Space " + spaceName + " already exists, skipping creation.");
         } else {
-            System.out.println("❌ Failed to create space " + spaceName + ": " + response.body());
+            throw new RuntimeException("Failed to create space " + spaceName + ": " + response.statusCode() + " - " + response.body());
         }
     }
 
@@ -144,244 +228,593 @@ public class KibanaUtils {
      * Fetch all indices from Kibana
      */
     public List<String> getIndices() throws Exception {
-        String url = baseUrl + "/api/index_management/indices";
+        List<String> indices = new ArrayList<>();
+        forEachIndex(indices::add);
+        return indices;
+    }
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Authorization", getBasicAuthHeader())
-                .header("kbn-xsrf", "true")
-                .GET()
-                .build();
+    /**
+     * Stream all index names to a callback, from the index cache when it is still valid,
+     * otherwise from the index source as they are parsed
+     */
+    public void forEachIndex(Consumer<String> consumer) throws Exception {
+        forEachIndex(null, consumer);
+    }
 
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    /**
+     * Stream index names to a callback. With a wildcard expression and a source that
+     * supports it, only the matching names are fetched and cached per expression;
+     * otherwise all names are streamed as by {@link #forEachIndex(Consumer)}. The
+     * expression only pre-filters, so the callback must still classify each name.
+     */
+    public void forEachIndex(String pattern, Consumer<String> consumer) throws Exception {
+        String serverPattern = pattern != null && indexSource().supportsPatterns() ? pattern : null;
+        // 完整列表已缓存时直接复用，无需再按通配符请求一次
+        List<String> cached = indexCache.get();
+        if (cached == null && serverPattern != null) {
+            cached = indexCache.get(serverPattern);
+        }
+        if (cached != null) {
+            cached.forEach(consumer);
+            return;
+        }
 
-        if (response.statusCode() == 200) {
-            JsonNode jsonNode = objectMapper.readTree(response.body());
-            List<String> indices = new ArrayList<>();
-            for (JsonNode item : jsonNode) {
-                indices.add(item.get("name").asText());
+        // 抓取耗时不含回调处理的时间
+        long start = System.nanoTime();
+        long consumerNanos = 0;
+        List<String> fetched = indexCache.isEnabled() ? new ArrayList<>() : null;
+        try (IndexNameIterator iterator = indexSource().open(serverPattern)) {
+            while (iterator.hasNext()) {
+                String index = iterator.next();
+                if (fetched != null) {
+                    fetched.add(index);
+                }
+                long consumerStart = System.nanoTime();
+                consumer.accept(index);
+                consumerNanos += System.nanoTime() - consumerStart;
             }
-            return indices;
-        } else {
-            throw new RuntimeException("Failed to fetch indices: " + response.statusCode() + " - " + response.body());
         }
+        if (fetched != null && serverPattern != null) {
+            indexCache.put(serverPattern, fetched);
+        } else if (fetched != null) {
+            indexCache.put(fetched);
+        }
+        getMetrics().recordPhase("fetch", System.nanoTime() - start - consumerNanos);
+    }
+
+    /**
+     * Stream all index names to a classifier, recording the time spent classifying
+     */
+    public void classifyEachIndex(Consumer<String> classifier) throws Exception {
+        classifyEachIndex(null, classifier);
+    }
+
+    /**
+     * Stream the index names selected by the wildcard expression to a classifier,
+     * see {@link #forEachIndex(String, Consumer)}
+     */
+    public void classifyEachIndex(String pattern, Consumer<String> classifier) throws Exception {
+        long[] classifyNanos = new long[1];
+        forEachIndex(pattern, index -> {
+            long start = System.nanoTime();
+            classifier.accept(index);
+            classifyNanos[0] += System.nanoTime() - start;
+        });
+        getMetrics().recordPhase("classify", classifyNanos[0]);
     }
 
     /**
-     * Delete all dataviews in space
+     * Get the metrics of the transport used by this instance
      */
-    public void deleteDataviews() throws Exception {
-        String url = baseUrl + "/s/" + spaceName + "/api/content_management/rpc/delete";
-        List<JsonNode> dataviews = getDataviews();
+    public KibanaMetrics getMetrics() {
+        return transport.getMetrics();
+    }
 
-        for (JsonNode dataview : dataviews) {
-            ObjectNode deleteBody = objectMapper.createObjectNode();
-            deleteBody.put("contentTypeId", "index-pattern");
-            deleteBody.put("id", dataview.get("id").asText());
-            deleteBody.set("options", objectMapper.createObjectNode().put("force", true));
-            deleteBody.put("version", 1);
+    /**
+     * Force the next index lookup to fetch the list from Kibana again
+     */
+    public void invalidateIndexCache() {
+        indexCache.invalidate();
+    }
 
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .header("Authorization", getBasicAuthHeader())
-                    .header("Content-Type", "application/json")
-                    .header("kbn-xsrf", "true")
-                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(deleteBody)))
-                    .build();
+    /**
+     * Open a streaming iterator over all index names; the caller must close it
+     */
+    public IndexNameIterator openIndices() throws Exception {
+        return indexSource().open(null);
+    }
 
-            httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    /**
+     * Delete all dataviews in space, in bulk when the Kibana version supports it
+     */
+    public ProvisioningReport deleteDataviews() throws Exception {
+        // 先收集全部 ID 再删除，边翻页边删除会使后续页的游标错位
+        List<String> ids = new ArrayList<>();
+        forEachKnownDataview((id, title) -> ids.add(id));
+        return deleteDataviews(ids);
+    }
+
+    /**
+     * Delete the given dataviews, in bulk when the Kibana version supports it
+     */
+    private ProvisioningReport deleteDataviews(List<String> ids) throws Exception {
+        ProvisioningReport report = getMetrics().time("delete", () -> isUseBulkDelete() && supportsBulkDelete()
+                ? bulkDeleteDataviews(ids)
+                : sendConcurrently("Delete data views", ids, true, this::createDeleteDataviewRequest));
+        if (stateStore != null) {
+            stateStore.removeDataViews(spaceName, report.getSucceeded());
+            if (report.hasFailures()) {
+                stateStore.invalidate(spaceName);
+            }
         }
+        return report;
     }
 
     /**
-     * Add a new index-pattern to Kibana
+     * Build the delete request for a single dataview
      */
-    public void addIndex(String indexName) throws Exception {
-        String uuid = UUID.randomUUID().toString();
-        String url = baseUrl + "/s/" + spaceName + "/api/content_management/rpc/create";
+    private HttpRequest createDeleteDataviewRequest(String id) throws Exception {
+        ObjectNode deleteBody = objectMapper.createObjectNode();
+        deleteBody.put("contentTypeId", "index-pattern");
+        deleteBody.put("id", id);
+        deleteBody.set("options", objectMapper.createObjectNode().put("force", true));
+        deleteBody.put("version", 1);
+
+        return transport.postJson("/s/" + spaceName + "/api/content_management/rpc/delete",
+                objectMapper.writeValueAsString(deleteBody));
+    }
+
+    /**
+     * Delete dataviews through the saved objects _bulk_delete API in chunks
+     */
+    private ProvisioningReport bulkDeleteDataviews(List<String> ids) throws Exception {
+        String path = "/s/" + spaceName + "/api/saved_objects/_bulk_delete?force=true";
+        ProvisioningReport report = new ProvisioningReport("Bulk delete data views");
+        int chunkSize = Math.max(1, config != null && config.getSettings() != null ? config.getSettings().getBulkDeleteSize() : 500);
+
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<String> chunk = ids.subList(from, Math.min(ids.size(), from + chunkSize));
+
+            ArrayNode deleteBody = objectMapper.createArrayNode();
+            for (String id : chunk) {
+                deleteBody.addObject().put("type", "index-pattern").put("id", id);
+            }
+
+            HttpRequest request = transport.postJson(path, objectMapper.writeValueAsString(deleteBody));
 
-        ObjectNode indexBody = createIndexBody(indexName, uuid);
+            HttpResponse<String> response;
+            try {
+                response = transport.sendWithRetry(request, true).join();
+            } catch (CompletionException e) {
+                for (String id : chunk) {
+                    report.recordFailure(id, KibanaTransport.unwrap(e).getMessage());
+                }
+                continue;
+            }
+
+            if (response.statusCode() >= 200 && response.statusCode() < 300) {
+                Set<String> pending = new LinkedHashSet<>(chunk);
+                for (JsonNode status : objectMapper.readTree(response.body()).path("statuses")) {
+                    String id = status.path("id").asText();
+                    if (!pending.remove(id)) {
+                        continue;
+                    }
+                    if (status.path("success").asBoolean()) {
+                        report.recordSuccess(id);
+                    } else {
+                        report.recordFailure(id, status.path("error").path("message").asText("unknown error"));
+                    }
+                }
+                // 响应中没有状态的 ID 无法确认已删除，计为失败
+                for (String id : pending) {
+                    report.recordFailure(id, "missing from bulk delete response");
+                }
+            } else {
+                for (String id : chunk) {
+                    report.recordFailure(id, response.statusCode() + " - " + response.body());
+                }
+            }
+        }
+
+        report.finish();
+        return report;
+    }
+
+    /**
+     * Check whether the Kibana version supports saved objects _bulk_delete (8.5+)
+     */
+    private synchronized boolean supportsBulkDelete() {
+        if (bulkDeleteSupported == null) {
+            bulkDeleteSupported = false;
+            try {
+                HttpResponse<String> response = transport.send(transport.get("/api/status"), true);
+                if (response.statusCode() == 200) {
+                    String[] version = objectMapper.readTree(response.body()).path("version").path("number").asText("0.0").split("\\.");
+                    int major = Integer.parseInt(version[0]);
+                    int minor = version.length > 1 ? Integer.parseInt(version[1]) : 0;
+                    bulkDeleteSupported = major > 8 || (major == 8 && minor >= 5);
+                }
+            } catch (Exception e) {
+                reporter.warn("⚠️ Unable to detect Kibana version, falling back to single deletes: " + e.getMessage());
+            }
+        }
+        return bulkDeleteSupported;
+    }
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Authorization", getBasicAuthHeader())
-                .header("Content-Type", "application/json")
-                .header("kbn-xsrf", "true")
-                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(indexBody)))
-                .build();
+    private boolean isUseBulkDelete() {
+        return config == null || config.getSettings() == null || config.getSettings().isUseBulkDelete();
+    }
 
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    /**
+     * Add a new index-pattern to Kibana
+     */
+    public void addIndex(String indexName) throws Exception {
+        HttpResponse<String> response = transport.send(createAddIndexRequest(indexName), true);
 
         if (response.statusCode() >= 200 && response.statusCode() < 300) {
-            System.out.println("✅ " + indexName + " index creation successful!");
+            reporter.detail("✅ " + indexName + " index creation successful!");
+        } else if (response.statusCode() == 409) {
+            reporter.detail("ℹ️ " + indexName + " index already exists, skipping creation.");
         } else {
-            System.out.println("❌ " + indexName + " index creation failed. Error: " + response.statusCode() + " - " + response.body());
+            throw new RuntimeException(indexName + " index creation failed: " + response.statusCode() + " - " + response.body());
         }
     }
-  
-  /**
-     * Get indices based on configuration file patterns
+
+    /**
+     * Add index-patterns concurrently, bounded by the configured parallelism
      */
-    public Map<String, List<String>> getConfigBasedIndices() throws Exception {
-        List<String> allIndices = getIndices();
-        Map<String, List<String>> categorizedIndices = new HashMap<>();
-        
-        if (config == null || config.getIndexMatching() == null) {
-            // Fallback to default behavior - use project and environment names
-            return getProjectIndicesAsConfigFormat();
+    public ProvisioningReport addIndices(Collection<String> indexNames) throws InterruptedException {
+        // IDs are derived from the space and base name, so a retried create cannot produce a duplicate
+        ProvisioningReport report = getMetrics().time("create", () -> isImportDataViews()
+                ? importDataViews(indexNames)
+                : sendConcurrently("Create data views", indexNames, true, this::createAddIndexRequest));
+        recordCreated(report);
+        return report;
+    }
+
+    /**
+     * Record the data views a create report produced in the state store
+     */
+    private void recordCreated(ProvisioningReport report) {
+        if (stateStore == null) {
+            return;
         }
-        
-        KibanaConfig.IndexMatchingSettings matching = config.getIndexMatching();
-        
-        List<String> projectMatches = new ArrayList<>();
-        List<String> environmentMatches = new ArrayList<>();
-        List<String> dateMatches = new ArrayList<>();
-        List<String> customMatches = new ArrayList<>();
-        List<String> combinedMatches = new ArrayList<>();
-        List<String> excludedIndices = new ArrayList<>();
-        
-        for (String index : allIndices) {
-            // 检查排除模式
-            boolean shouldExclude = false;
-            if (matching.getExcludePatterns() != null) {
-                for (String excludePattern : matching.getExcludePatterns()) {
-                    if (Pattern.compile(excludePattern, Pattern.CASE_INSENSITIVE).matcher(index).matches()) {
-                        shouldExclude = true;
-                        excludedIndices.add(index);
-                        break;
-                    }
+        Map<String, String> created = new LinkedHashMap<>();
+        for (String indexName : report.getSucceeded()) {
+            created.put(dataViewId(indexName), indexName + "*");
+        }
+        for (String indexName : report.getSkipped()) {
+            created.put(dataViewId(indexName), indexName + "*");
+        }
+        stateStore.recordDataViews(spaceName, created);
+        if (report.hasFailures()) {
+            stateStore.invalidate(spaceName);
+        }
+    }
+
+    /**
+     * Provision the data views of the space in one streaming pass: index names flow from the
+     * index source through the matcher and base name extractor, and each base name is sent
+     * to an asynchronous create as soon as it is first seen, so download, classification
+     * and creates overlap. In reconcile mode the existing views are read first and the
+     * stale ones are deleted once the stream has ended, unless no index matched at all.
+     * Views are always created through rpc; dataViewCreateMode: import is rejected.
+     */
+    public ProvisioningReport streamDataViews() throws Exception {
+        if (isImportDataViews()) {
+            // 流水线按基础名称逐个派发创建请求，无法凑成 _import 分块
+            throw new IllegalArgumentException("streamDataViews does not support dataViewCreateMode: import; "
+                    + "use dataViewCreateMode: rpc or disable streamDataViews");
+        }
+        boolean reconcile = !isUpsertDataViews() && isReconcileDataViews();
+        if (!isUpsertDataViews() && !reconcile) {
+            deleteDataviews().printSummary(reporter);
+        }
+
+        // 基础名称 → 已有视图 ID；同名重复视图和标题不是 baseName* 的视图直接视为过期
+        Map<String, String> existing = new HashMap<>();
+        List<String> staleIds = new ArrayList<>();
+        if (reconcile) {
+            forEachKnownDataview((id, title) -> {
+                boolean kept = title.endsWith("*") && existing.putIfAbsent(title.substring(0, title.length() - 1), id) == null;
+                if (!kept) {
+                    staleIds.add(id);
                 }
+            });
+        }
+
+        reporter.summary("\n🌊 Streaming indices into data view creation...");
+        ProvisioningReport report = new ProvisioningReport("Stream data views");
+        DataViewPipeline pipeline = new DataViewPipeline(indexMatcher, baseNameExtractor, existing.keySet(), baseName -> {
+            try {
+                return sendAndRecord(baseName, createAddIndexRequest(baseName), true, report);
+            } catch (Exception e) {
+                report.recordFailure(baseName, e.getMessage());
+                return CompletableFuture.completedFuture(null);
             }
-            
-            if (shouldExclude) continue;
-            
-            boolean matchesProject = false;
-            boolean matchesEnvironment = false;
-            boolean matchesDate = false;
-            boolean matchesCustom = false;
-            
-            // 检查项目模式
-            if (matching.getProjectPatterns() != null) {
-                for (String pattern : matching.getProjectPatterns()) {
-                    if (Pattern.compile(pattern, Pattern.CASE_INSENSITIVE).matcher(index).matches()) {
-                        matchesProject = true;
-                        projectMatches.add(index);
-                        break;
-                    }
+        }, getMaxConcurrentRequests());
+        getMetrics().time("pipeline",
+                () -> pipeline.run(consumer -> forEachIndex(indexMatcher.toWildcardExpression(), consumer)));
+        report.finish();
+        recordCreated(report);
+
+        reporter.summary("  📝 " + pipeline.getIndexCount() + " indices, " + pipeline.getMatchedCount() + " matching, "
+                + pipeline.getBaseNames().size() + " base names, " + pipeline.getDispatchedCount() + " creates sent");
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("indices", pipeline.getIndexCount());
+        fields.put("matched", pipeline.getMatchedCount());
+        fields.put("baseNames", pipeline.getBaseNames().size());
+        fields.put("dispatched", pipeline.getDispatchedCount());
+        reporter.record(Reporter.Level.SUMMARY, "pipeline", fields);
+        report.printSummary(reporter);
+
+        if (reconcile && pipeline.getMatchedCount() == 0) {
+            // 与 provisionDataViews 一致：没有匹配的索引时不改动空间，避免删除全部视图
+            reporter.warn("⚠️ No combined matching indices found, leaving existing data views unchanged.");
+        } else if (reconcile) {
+            for (Map.Entry<String, String> view : existing.entrySet()) {
+                if (!pipeline.getBaseNames().contains(view.getKey())) {
+                    staleIds.add(view.getValue());
                 }
             }
-            
-            // 检查环境模式
-            if (matching.getEnvironmentPatterns() != null) {
-                for (String pattern : matching.getEnvironmentPatterns()) {
-                    if (Pattern.compile(pattern, Pattern.CASE_INSENSITIVE).matcher(index).matches()) {
-                        matchesEnvironment = true;
-                        environmentMatches.add(index);
-                        break;
-                    }
-                }
+            if (!staleIds.isEmpty()) {
+                deleteDataviews(staleIds).printSummary(reporter);
             }
-            
-            // 检查日期模式
-            if (matching.getDatePatterns() != null) {
-                for (String pattern : matching.getDatePatterns()) {
-                    if (Pattern.compile(pattern).matcher(index).matches()) {
-                        matchesDate = true;
-                        dateMatches.add(index);
-                        break;
-                    }
-                }
+        }
+        return report;
+    }
+
+    private boolean isStreamDataViews() {
+        return config != null && config.getSettings() != null && config.getSettings().isStreamDataViews();
+    }
+
+    /**
+     * Build the create request for a new index-pattern
+     */
+    private HttpRequest createAddIndexRequest(String indexName) throws Exception {
+        ObjectNode indexBody = createIndexBody(indexName, dataViewId(indexName), isUpsertDataViews());
+
+        return transport.postJson("/s/" + spaceName + "/api/content_management/rpc/create",
+                objectMapper.writeValueAsString(indexBody));
+    }
+
+    /**
+     * Create index-patterns through the saved objects _import API, one streamed NDJSON upload
+     * per chunk instead of one request per view
+     */
+    private ProvisioningReport importDataViews(Collection<String> indexNames) {
+        String path = "/s/" + spaceName + "/api/saved_objects/_import?overwrite=" + isUpsertDataViews();
+        ProvisioningReport report = new ProvisioningReport("Import data views");
+        int chunkSize = Math.max(1, config.getSettings().getImportChunkSize());
+        List<String> names = new ArrayList<>(indexNames);
+
+        for (int from = 0; from < names.size(); from += chunkSize) {
+            // ID 到基础名称的映射，用于把导入结果对应回基础名称
+            Map<String, String> chunk = new LinkedHashMap<>();
+            for (String indexName : names.subList(from, Math.min(names.size(), from + chunkSize))) {
+                chunk.put(dataViewId(indexName), indexName);
             }
-            
-            // 检查自定义模式
-            if (matching.getCustomPatterns() != null) {
-                for (String pattern : matching.getCustomPatterns()) {
-                    if (Pattern.compile(pattern, Pattern.CASE_INSENSITIVE).matcher(index).matches()) {
-                        matchesCustom = true;
-                        customMatches.add(index);
-                        break;
-                    }
+
+            String boundary = "----kibana-utils-" + UUID.randomUUID();
+            HttpRequest request = transport.post(path, DataViewImportStream.contentType(boundary),
+                    HttpRequest.BodyPublishers.ofInputStream(
+                            () -> new DataViewImportStream(objectMapper, boundary, chunk, this::createDataViewAttributes)));
+
+            try {
+                // 固定 ID 导入，重试不会产生重复视图
+                HttpResponse<String> response = transport.sendWithRetry(request, true).join();
+                if (response.statusCode() >= 200 && response.statusCode() < 300) {
+                    recordImportResults(objectMapper.readTree(response.body()), chunk, report);
+                } else {
+                    chunk.values().forEach(name -> report.recordFailure(name, response.statusCode() + " - " + response.body()));
                 }
+            } catch (CompletionException | IOException e) {
+                String error = KibanaTransport.unwrap(e).getMessage();
+                chunk.values().forEach(name -> report.recordFailure(name, error));
             }
-            
-            // 组合匹配（项目 + 环境）
-            if (matchesProject && matchesEnvironment) {
-                combinedMatches.add(index);
+        }
+
+        report.finish();
+        return report;
+    }
+
+    /**
+     * Map the successResults and errors of an _import response back to base names
+     */
+    private void recordImportResults(JsonNode result, Map<String, String> chunk, ProvisioningReport report) {
+        Map<String, String> pending = new LinkedHashMap<>(chunk);
+        for (JsonNode success : result.path("successResults")) {
+            String name = pending.remove(success.path("id").asText());
+            if (name != null) {
+                report.recordSuccess(name);
             }
         }
-        
-        categorizedIndices.put("project_matches", projectMatches);
-        categorizedIndices.put("environment_matches", environmentMatches);
-        categorizedIndices.put("date_matches", dateMatches);
-        categorizedIndices.put("custom_matches", customMatches);
-        categorizedIndices.put("combined_matches", combinedMatches);
-        categorizedIndices.put("excluded_indices", excludedIndices);
-        
-        return categorizedIndices;
+        for (JsonNode error : result.path("errors")) {
+            String name = pending.remove(error.path("id").asText());
+            if (name == null) {
+                continue;
+            }
+            if ("conflict".equals(error.path("error").path("type").asText())) {
+                // 对象已存在（相同的确定性 ID），视为无需变更
+                report.recordSkipped(name);
+            } else {
+                report.recordFailure(name, error.path("error").path("type").asText("unknown error"));
+            }
+        }
+        for (String name : pending.values()) {
+            report.recordFailure(name, "missing from import response");
+        }
+    }
+
+    private boolean isImportDataViews() {
+        return config != null && config.getSettings() != null
+                && "import".equalsIgnoreCase(config.getSettings().getDataViewCreateMode());
+    }
+
+    /**
+     * Send one request per item asynchronously, keeping at most maxConcurrentRequests in flight,
+     * and record each outcome in a report
+     */
+    private ProvisioningReport sendConcurrently(String operation, Collection<String> items, boolean idempotent,
+                                                RequestFactory requestFactory) throws InterruptedException {
+        ProvisioningReport report = new ProvisioningReport(operation);
+        Semaphore permits = new Semaphore(getMaxConcurrentRequests());
+        List<CompletableFuture<Void>> futures = new ArrayList<>(items.size());
+
+        for (String item : items) {
+            HttpRequest request;
+            try {
+                request = requestFactory.create(item);
+            } catch (Exception e) {
+                report.recordFailure(item, e.getMessage());
+                continue;
+            }
+
+            permits.acquire();
+            futures.add(sendAndRecord(item, request, idempotent, report)
+                    .whenComplete((result, error) -> permits.release()));
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        report.finish();
+        return report;
+    }
+
+    /**
+     * Send one request asynchronously and record its outcome under the item's name
+     */
+    private CompletableFuture<Void> sendAndRecord(String item, HttpRequest request, boolean idempotent,
+                                                  ProvisioningReport report) {
+        return transport.sendWithRetry(request, idempotent)
+                .handle((response, error) -> {
+                    if (error != null) {
+                        report.recordFailure(item, KibanaTransport.unwrap(error).getMessage());
+                    } else if (response.statusCode() >= 200 && response.statusCode() < 300) {
+                        report.recordSuccess(item);
+                    } else if (response.statusCode() == 409) {
+                        // 对象已存在（相同的确定性 ID），视为无需变更
+                        report.recordSkipped(item);
+                    } else {
+                        report.recordFailure(item, response.statusCode() + " - " + response.body());
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * Get the bounded parallelism for batch operations
+     */
+    private int getMaxConcurrentRequests() {
+        if (config != null && config.getSettings() != null && config.getSettings().getMaxConcurrentRequests() > 0) {
+            return config.getSettings().getMaxConcurrentRequests();
+        }
+        return 8;
+    }
+
+    /**
+     * Builds the HTTP request for a single item of a batch operation
+     */
+    @FunctionalInterface
+    private interface RequestFactory {
+        HttpRequest create(String item) throws Exception;
+    }
+  
+    /**
+     * Get indices based on configuration file patterns
+     */
+    public IndexMatchResult getConfigBasedIndices() throws Exception {
+        // Without index matching settings the matcher falls back to project and environment names
+        IndexMatchResult result = new IndexMatchResult();
+        // 各分类都要统计，因此始终对完整列表分类
+        classifyEachIndex(index -> result.add(index, indexMatcher.classify(index)));
+        return result;
+    }
+
+    /**
+     * Get only the combined matching indices (project + environment); a source that
+     * supports it filters the list on the server with the matcher's wildcard expression
+     */
+    public List<String> getCombinedMatches() throws Exception {
+        List<String> combinedMatches = new ArrayList<>();
+        classifyEachIndex(indexMatcher.toWildcardExpression(), index -> {
+            if (indexMatcher.isCombinedMatch(index)) {
+                combinedMatches.add(index);
+            }
+        });
+        return combinedMatches;
     }
     
     /**
      * Display configuration-based indices summary
      */
     public void displayConfigBasedIndicesSummary() throws Exception {
-        System.out.println("\n📋 Configuration-Based Indices Summary");
-        System.out.println("=" .repeat(60));
-        System.out.println("Project: " + projectName);
-        System.out.println("Environment: " + projectEnv);
-        System.out.println("Today's Date: " + LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy.MM.dd")));
+        reporter.summary("\n📋 Configuration-Based Indices Summary");
+        reporter.summary("=" .repeat(60));
+        reporter.summary("Project: " + projectName);
+        reporter.summary("Environment: " + projectEnv);
+        reporter.summary("Today's Date: " + LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy.MM.dd")));
         
         if (config != null && config.getIndexMatching() != null) {
             KibanaConfig.IndexMatchingSettings matching = config.getIndexMatching();
-            System.out.println("Project Patterns: " + matching.getProjectPatterns());
-            System.out.println("Environment Patterns: " + matching.getEnvironmentPatterns());
-            System.out.println("Date Patterns: " + matching.getDatePatterns());
-            System.out.println("Custom Patterns: " + matching.getCustomPatterns());
-            System.out.println("Exclude Patterns: " + matching.getExcludePatterns());
+            reporter.summary("Project Patterns: " + matching.getProjectPatterns());
+            reporter.summary("Environment Patterns: " + matching.getEnvironmentPatterns());
+            reporter.summary("Date Patterns: " + matching.getDatePatterns());
+            reporter.summary("Custom Patterns: " + matching.getCustomPatterns());
+            reporter.summary("Exclude Patterns: " + matching.getExcludePatterns());
         }
-        System.out.println();
+        reporter.summary("");
         
-        Map<String, List<String>> indices = getConfigBasedIndices();
+        IndexMatchResult indices = getConfigBasedIndices();
         
-        System.out.println("🎯 Combined matches (Project + Environment) (" + indices.get("combined_matches").size() + "):");
-        for (String index : indices.get("combined_matches")) {
-            System.out.println("  ✅ " + index);
+        reporter.summary("🎯 Combined matches (Project + Environment) (" + indices.getCombinedMatches().size() + "):");
+        if (reporter.isVerbose()) {
+            for (String index : indices.getCombinedMatches()) {
+                reporter.detail("  ✅ " + index);
+            }
         }
+        Map<String, Object> counts = new LinkedHashMap<>();
+        counts.put("project", projectName);
+        counts.put("environment", projectEnv);
+        counts.put("combined", indices.getCombinedMatches().size());
+        counts.put("projectMatches", indices.getProjectMatches().size());
+        counts.put("environmentMatches", indices.getEnvironmentMatches().size());
+        counts.put("excluded", indices.getExcludedIndices().size());
+        reporter.record(Reporter.Level.SUMMARY, "indices", counts);
         
-//        System.out.println("\n📁 Project pattern matches (" + indices.get("project_matches").size() + "):");
-//        for (String index : indices.get("project_matches")) {
-//            System.out.println("  🔍 " + index);
+//        reporter.summary("\n📁 Project pattern matches (" + indices.getProjectMatches().size() + "):");
+//        for (String index : indices.getProjectMatches()) {
+//            reporter.summary("  🔍 " + index);
 //        }
 //
-//        System.out.println("\n🌍 Environment pattern matches (" + indices.get("environment_matches").size() + "):");
-//        for (String index : indices.get("environment_matches")) {
-//            System.out.println("  🏷️ " + index);
+//        reporter.summary("\n🌍 Environment pattern matches (" + indices.getEnvironmentMatches().size() + "):");
+//        for (String index : indices.getEnvironmentMatches()) {
+//            reporter.summary("  🏷️ " + index);
 //        }
 //
-//        System.out.println("\n📅 Date pattern matches (" + indices.get("date_matches").size() + "):");
-//        for (String index : indices.get("date_matches")) {
-//            System.out.println("  🗓️ " + index);
+//        reporter.summary("\n📅 Date pattern matches (" + indices.getDateMatches().size() + "):");
+//        for (String index : indices.getDateMatches()) {
+//            reporter.summary("  🗓️ " + index);
 //        }
 //
-//        System.out.println("\n🎨 Custom pattern matches (" + indices.get("custom_matches").size() + "):");
-//        for (String index : indices.get("custom_matches")) {
-//            System.out.println("  ⭐ " + index);
+//        reporter.summary("\n🎨 Custom pattern matches (" + indices.getCustomMatches().size() + "):");
+//        for (String index : indices.getCustomMatches()) {
+//            reporter.summary("  ⭐ " + index);
 //        }
 //
-//        if (!indices.get("excluded_indices").isEmpty()) {
-//            System.out.println("\n❌ Excluded indices (" + indices.get("excluded_indices").size() + "):");
-//            for (String index : indices.get("excluded_indices")) {
-//                System.out.println("  🚫 " + index);
+//        if (!indices.getExcludedIndices().isEmpty()) {
+//            reporter.summary("\n❌ Excluded indices (" + indices.getExcludedIndices().size() + "):");
+//            for (String index : indices.getExcludedIndices()) {
+//                reporter.summary("  🚫 " + index);
 //            }
 //        }
         
-        System.out.println("\n" + "=" .repeat(60));
+        reporter.summary("\n" + "=" .repeat(60));
     }
 
     /**
      * Get all project-related indices with detailed information
      */
     public Map<String, List<String>> getProjectIndices() throws Exception {
-        List<String> allIndices = getIndices();
         Map<String, List<String>> categorizedIndices = new HashMap<>();
         
         Pattern projectPattern = Pattern.compile(".*" + projectName + ".*", Pattern.CASE_INSENSITIVE);
@@ -396,7 +829,7 @@ public class KibanaUtils {
         String todayPattern = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy.MM.dd"));
         Pattern datePattern = Pattern.compile(".*" + todayPattern + ".*");
         
-        for (String index : allIndices) {
+        classifyEachIndex(index -> {
             boolean matchesProject = projectPattern.matcher(index).matches();
             boolean matchesEnv = envPattern.matcher(index).matches();
             boolean matchesToday = datePattern.matcher(index).matches();
@@ -411,7 +844,7 @@ public class KibanaUtils {
             } else if (matchesEnv) {
                 envIndices.add(index);
             }
-        }
+        });
         
         categorizedIndices.put("project_only", projectIndices);
         categorizedIndices.put("env_only", envIndices);
@@ -421,62 +854,59 @@ public class KibanaUtils {
         return categorizedIndices;
     }
     
-    /**
-     * Convert project indices format to config-based format for compatibility
-     */
-    private Map<String, List<String>> getProjectIndicesAsConfigFormat() throws Exception {
-        Map<String, List<String>> projectIndices = getProjectIndices();
-        Map<String, List<String>> configFormat = new HashMap<>();
-        
-        // Map traditional format to config format
-        configFormat.put("project_matches", projectIndices.getOrDefault("project_only", new ArrayList<>()));
-        configFormat.put("environment_matches", projectIndices.getOrDefault("env_only", new ArrayList<>()));
-        configFormat.put("date_matches", new ArrayList<>()); // Empty for now
-        configFormat.put("custom_matches", new ArrayList<>()); // Empty for now
-        configFormat.put("combined_matches", projectIndices.getOrDefault("project_and_env", new ArrayList<>()));
-        configFormat.put("excluded_indices", new ArrayList<>()); // Empty for now
-        
-        return configFormat;
-    }
-
     /**
      * Display project indices summary
      */
     public void displayProjectIndicesSummary() throws Exception {
-        System.out.println("\n📋 Project Indices Summary");
-        System.out.println("=" .repeat(50));
-        System.out.println("Project: " + projectName);
-        System.out.println("Environment: " + projectEnv);
-        System.out.println("Today's Date: " + LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy.MM.dd")));
-        System.out.println();
+        reporter.summary("\n📋 Project Indices Summary");
+        reporter.summary("=" .repeat(50));
+        reporter.summary("Project: " + projectName);
+        reporter.summary("Environment: " + projectEnv);
+        reporter.summary("Today's Date: " + LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy.MM.dd")));
+        reporter.summary("");
         
         Map<String, List<String>> indices = getProjectIndices();
         
-        System.out.println("📊 Indices matching project + environment (" + indices.get("project_and_env").size() + "):");
-        for (String index : indices.get("project_and_env")) {
-            System.out.println("  ✓ " + index);
+        reporter.summary("📊 Indices matching project + environment (" + indices.get("project_and_env").size() + "):");
+        if (reporter.isVerbose()) {
+            for (String index : indices.get("project_and_env")) {
+                reporter.detail("  ✓ " + index);
+            }
         }
         
-        System.out.println("\n🗓️ Today's matching indices (" + indices.get("today_matching").size() + "):");
-        for (String index : indices.get("today_matching")) {
-            System.out.println("  📅 " + index);
+        reporter.summary("\n🗓️ Today's matching indices (" + indices.get("today_matching").size() + "):");
+        if (reporter.isVerbose()) {
+            for (String index : indices.get("today_matching")) {
+                reporter.detail("  📅 " + index);
+            }
         }
         
         if (!indices.get("project_only").isEmpty()) {
-            System.out.println("\n🔍 Project-only indices (" + indices.get("project_only").size() + "):");
-            for (String index : indices.get("project_only")) {
-                System.out.println("  📁 " + index);
+            reporter.summary("\n🔍 Project-only indices (" + indices.get("project_only").size() + "):");
+            if (reporter.isVerbose()) {
+                for (String index : indices.get("project_only")) {
+                    reporter.detail("  📁 " + index);
+                }
             }
         }
         
         if (!indices.get("env_only").isEmpty()) {
-            System.out.println("\n🌍 Environment-only indices (" + indices.get("env_only").size() + "):");
-            for (String index : indices.get("env_only")) {
-                System.out.println("  🏷️ " + index);
+            reporter.summary("\n🌍 Environment-only indices (" + indices.get("env_only").size() + "):");
+            if (reporter.isVerbose()) {
+                for (String index : indices.get("env_only")) {
+                    reporter.detail("  🏷️ " + index);
+                }
             }
         }
         
-        System.out.println("\n" + "=" .repeat(50));
+        reporter.summary("\n" + "=" .repeat(50));
+    }
+
+    /**
+     * Base name of a single index with its date suffix removed, empty if nothing remains
+     */
+    public String baseNameOf(String index) {
+        return baseNameExtractor.extract(index);
     }
 
     /**
@@ -484,66 +914,84 @@ public class KibanaUtils {
      */
     public Set<String> extractBaseNames(List<String> indices) {
         Set<String> baseNames = new HashSet<>();
+        boolean detailed = reporter.isVerbose();
         
-        System.out.println("🔄 Extracting base names and removing date suffixes:");
+        reporter.summary("🔄 Extracting base names and removing date suffixes:");
         
         for (String index : indices) {
-            String baseName = index;
-            
-            // 移除各种日期格式的后缀
-            baseName = baseName.replaceAll("-\\d{4}\\.\\d{2}\\.\\d{2}.*$", "");  // -yyyy.MM.dd
-            baseName = baseName.replaceAll("-\\d{4}-\\d{2}-\\d{2}.*$", "");     // -yyyy-MM-dd
-            baseName = baseName.replaceAll("_\\d{4}\\.\\d{2}\\.\\d{2}.*$", ""); // _yyyy.MM.dd
-            baseName = baseName.replaceAll("_\\d{4}-\\d{2}-\\d{2}.*$", "");     // _yyyy-MM-dd
-            baseName = baseName.replaceAll("\\.\\d{4}\\.\\d{2}\\.\\d{2}.*$", ""); // .yyyy.MM.dd
-            baseName = baseName.replaceAll("\\d{4}\\.\\d{2}\\.\\d{2}$", "");    // yyyy.MM.dd at end
-            baseName = baseName.replaceAll("\\d{4}-\\d{2}-\\d{2}$", "");       // yyyy-MM-dd at end
-            
-            // 转换为小写
-            baseName = baseName.toLowerCase();
+            String baseName = baseNameExtractor.extract(index);
+            if (baseName.isEmpty()) {
+                continue;
+            }
             
-            if (!baseName.isEmpty() && !baseName.equals(index.toLowerCase())) {
-                baseNames.add(baseName);
-                System.out.println("  📝 " + index + " → " + baseName + " (lowercase)");
-            } else if (!baseName.isEmpty()) {
-                baseNames.add(baseName);
-                System.out.println("  📝 " + index + " → " + baseName + " (lowercase, no date suffix)");
+            baseNames.add(baseName);
+            if (detailed) {
+                reporter.detail("  📝 " + index + " → " + baseName);
             }
         }
         
+        reporter.summary("  📝 " + indices.size() + " indices → " + baseNames.size() + " base names");
+
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("indices", indices.size());
+        fields.put("baseNames", new TreeSet<>(baseNames));
+        reporter.record(Reporter.Level.SUMMARY, "baseNames", fields);
         return baseNames;
     }
     
     /**
      * Add data views based on combined matching indices (project + environment)
+     *
+     * @return the outcome per base name
      */
-    public void addCombinedMatchingDataViews() throws Exception {
+    public ProvisioningReport addCombinedMatchingDataViews() throws Exception {
         ensureSpace();
-        deleteDataviews();
+        if (isStreamDataViews()) {
+            return streamDataViews();
+        }
+        return provisionDataViews(getCombinedMatches());
+    }
 
-        Map<String, List<String>> indices = getConfigBasedIndices();
-        List<String> combinedMatches = indices.get("combined_matches");
-        
-        System.out.println("\n📊 Processing " + combinedMatches.size() + " combined matching indices...");
+    /**
+     * Create data views for already classified combined matching indices (the space must exist)
+     *
+     * @return the outcome per base name; base names whose view already existed count as unchanged
+     */
+    public ProvisioningReport provisionDataViews(List<String> combinedMatches) throws Exception {
+        if (!isUpsertDataViews() && !isReconcileDataViews()) {
+            deleteDataviews().printSummary(reporter);
+        }
+
+        reporter.summary("\n📊 Processing " + combinedMatches.size() + " combined matching indices...");
         
         if (combinedMatches.isEmpty()) {
-            System.out.println("⚠️ No combined matching indices found. Please check your configuration patterns.");
-            return;
+            reporter.warn("⚠️ No combined matching indices found. Please check your configuration patterns.");
+            ProvisioningReport report = new ProvisioningReport("Create data views");
+            report.finish();
+            return report;
         }
         
         Set<String> baseNames = extractBaseNames(combinedMatches);
         
-        System.out.println("\n✨ Found " + baseNames.size() + " unique base index patterns:");
-        for (String baseName : baseNames) {
-            System.out.println("  🎯 " + baseName);
+        reporter.summary("\n✨ Found " + baseNames.size() + " unique base index patterns:");
+        if (reporter.isVerbose()) {
+            for (String baseName : baseNames) {
+                reporter.detail("  🎯 " + baseName);
+            }
         }
         
-        System.out.println("\n🚀 Creating data views...");
-        for (String baseName : baseNames) {
-            addIndex(baseName);
+        if (!isUpsertDataViews() && isReconcileDataViews()) {
+            ProvisioningReport report = reconcileDataViews(baseNames);
+            reporter.summary("\n✅ Data views reconciled for log viewing!");
+            return report;
         }
         
-        System.out.println("\n✅ Successfully created " + baseNames.size() + " data views for log viewing!");
+        reporter.summary("\n🚀 Creating data views...");
+        ProvisioningReport report = addIndices(baseNames);
+        report.printSummary(reporter);
+        
+        reporter.summary("\n✅ Successfully created " + report.getSucceeded().size() + " data views for log viewing!");
+        return report;
     }
 
     /**
@@ -551,44 +999,115 @@ public class KibanaUtils {
      */
     public void addAllIndex() throws Exception {
         ensureSpace();
-        deleteDataviews();
+        if (isStreamDataViews()) {
+            streamDataViews();
+            reporter.summary("\n✅ Data views created successfully! You can now view logs in Kibana.");
+            return;
+        }
+        if (!isUpsertDataViews() && !isReconcileDataViews()) {
+            deleteDataviews().printSummary(reporter);
+        }
 
-        Map<String, List<String>> indices;
         List<String> targetIndices;
         
         // 优先使用配置基础的组合匹配
         if (config != null && config.getIndexMatching() != null) {
-            indices = getConfigBasedIndices();
-            targetIndices = indices.get("combined_matches");
-            System.out.println("📊 Using configuration-based combined matching...");
+            targetIndices = getCombinedMatches();
+            reporter.summary("📊 Using configuration-based combined matching...");
         } else {
-            indices = getProjectIndices();
-            targetIndices = indices.get("project_and_env");
-            System.out.println("📊 Using legacy project+environment matching...");
+            targetIndices = getProjectIndices().get("project_and_env");
+            reporter.summary("📊 Using legacy project+environment matching...");
         }
         
         if (targetIndices.isEmpty()) {
-            System.out.println("⚠️ No matching indices found. Please check your configuration.");
+            reporter.warn("⚠️ No matching indices found. Please check your configuration.");
             return;
         }
         
-        System.out.println("🔄 Processing " + targetIndices.size() + " matching indices...");
+        reporter.summary("🔄 Processing " + targetIndices.size() + " matching indices...");
         Set<String> baseNames = extractBaseNames(targetIndices);
         
-        System.out.println("\n✨ Creating " + baseNames.size() + " unique data views...");
-        for (String baseName : baseNames) {
-            addIndex(baseName);
+        if (!isUpsertDataViews() && isReconcileDataViews()) {
+            reconcileDataViews(baseNames);
+        } else {
+            reporter.summary("\n✨ Creating " + baseNames.size() + " unique data views...");
+            addIndices(baseNames).printSummary(reporter);
         }
         
-        System.out.println("\n✅ Data views created successfully! You can now view logs in Kibana.");
+        reporter.summary("\n✅ Data views created successfully! You can now view logs in Kibana.");
+    }
+
+    /**
+     * Bring the dataviews in the space in line with the desired base names:
+     * only missing views are created and only stale or duplicate views are deleted
+     *
+     * @return the outcome per base name; base names that already had a view count as unchanged
+     */
+    public ProvisioningReport reconcileDataViews(Set<String> baseNames) throws Exception {
+        Set<String> missing = new LinkedHashSet<>(baseNames);
+        List<String> staleIds = new ArrayList<>();
+        diffDataViews(missing, staleIds);
+
+        reporter.summary("\n🔄 Reconciling data views: " + missing.size() + " to create, "
+                + staleIds.size() + " to delete, " + (baseNames.size() - missing.size()) + " unchanged");
+
+        if (!staleIds.isEmpty()) {
+            deleteDataviews(staleIds).printSummary(reporter);
+        }
+        ProvisioningReport report;
+        if (!missing.isEmpty()) {
+            report = addIndices(missing);
+            report.printSummary(reporter);
+        } else {
+            report = new ProvisioningReport("Create data views");
+            report.finish();
+        }
+        for (String baseName : baseNames) {
+            if (!missing.contains(baseName)) {
+                report.recordSkipped(baseName);
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Remove the base names that already have a view from missing and collect the ids of
+     * stale or duplicate views
+     */
+    private void diffDataViews(Set<String> missing, List<String> staleIds) throws Exception {
+        forEachKnownDataview((id, title) -> {
+            // 标题为 baseName* 的视图视为已存在，同名重复视图和不再需要的视图视为过期
+            boolean wanted = title.endsWith("*") && missing.remove(title.substring(0, title.length() - 1));
+            if (!wanted) {
+                staleIds.add(id);
+            }
+        });
+    }
+
+    private boolean isUpsertDataViews() {
+        return config != null && config.getSettings() != null && config.getSettings().isUpsertDataViews();
+    }
+
+    private boolean isReconcileDataViews() {
+        return config == null || config.getSettings() == null || config.getSettings().isReconcileDataViews();
     }
  
    /**
      * Create a role for this project
      */
     public void createRole() throws Exception {
-        String url = baseUrl + "/api/security/role/" + projectName + "?createOnly=true";
+        String body = objectMapper.writeValueAsString(createRoleBody());
+        if (isUnchangedInState("role", body)) {
+            reporter.detail("ℹ️ Role " + projectName + " unchanged since last run, skipping.");
+            return;
+        }
+        writeRole(body);
+    }
 
+    /**
+     * Create the body of the project role
+     */
+    private ObjectNode createRoleBody() {
         ObjectNode roleBody = objectMapper.createObjectNode();
 
         // Elasticsearch section
@@ -626,25 +1145,41 @@ public class KibanaUtils {
 
         kibana.add(kibanaRule);
         roleBody.set("kibana", kibana);
+        return roleBody;
+    }
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Authorization", getBasicAuthHeader())
-                .header("Content-Type", "application/json")
-                .header("kbn-xsrf", "true")
-                .PUT(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(roleBody)))
-                .build();
+    private void writeRole(String body) throws Exception {
+        HttpResponse<String> response = getMetrics().time("role", () -> transport.send(transport.putJson(
+                "/api/security/role/" + projectName + "?createOnly=true", body), true));
 
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        System.out.println("✅ Created " + projectName + " role successfully!");
+        if (response.statusCode() >= 200 && response.statusCode() < 300) {
+            reporter.summary("✅ Created " + projectName + " role successfully!");
+        } else if (response.statusCode() == 409) {
+            reporter.summary("ℹ️ Role " + projectName + " already exists, skipping creation.");
+        } else {
+            throw new RuntimeException("Failed to create role " + projectName + ": " + response.statusCode() + " - " + response.body());
+        }
+        if (stateStore != null) {
+            stateStore.recordHash(spaceName, "role", StateStore.hash(body));
+        }
     }
 
     /**
      * Create a user for this project
      */
     public void createUser() throws Exception {
-        String url = baseUrl + "/internal/security/users/" + projectName;
+        String body = objectMapper.writeValueAsString(createUserBody());
+        if (isUnchangedInState("user", body)) {
+            reporter.detail("ℹ️ User " + projectName + " unchanged since last run, skipping.");
+            return;
+        }
+        writeUser(body);
+    }
 
+    /**
+     * Create the body of the project user
+     */
+    private ObjectNode createUserBody() {
         ObjectNode userBody = objectMapper.createObjectNode();
         userBody.put("password", "123456");
         userBody.put("username", projectName);
@@ -654,72 +1189,222 @@ public class KibanaUtils {
         ArrayNode roles = objectMapper.createArrayNode();
         roles.add(projectName);
         userBody.set("roles", roles);
+        return userBody;
+    }
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Authorization", getBasicAuthHeader())
-                .header("Content-Type", "application/json")
-                .header("kbn-xsrf", "true")
-                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(userBody)))
-                .build();
+    private void writeUser(String body) throws Exception {
+        // 该接口按用户名整体写入，重复请求结果相同
+        HttpResponse<String> response = getMetrics().time("user",
+                () -> transport.send(transport.postJson("/internal/security/users/" + projectName, body), true));
 
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        System.out.println("✅ Created " + projectName + " user successfully!");
+        if (response.statusCode() >= 200 && response.statusCode() < 300) {
+            reporter.summary("✅ Created " + projectName + " user successfully!");
+        } else {
+            throw new RuntimeException("Failed to create user " + projectName + ": " + response.statusCode() + " - " + response.body());
+        }
+        if (stateStore != null) {
+            stateStore.recordHash(spaceName, "user", StateStore.hash(body));
+        }
     }
 
     /**
-     * Fetch all index-patterns (data views)
+     * Compute the changes for this space from the already classified combined matching
+     * indices, reading from Kibana (or the state store) but never writing
      */
-    private List<JsonNode> getDataviews() throws Exception {
-        String url = baseUrl + "/s/" + spaceName + "/api/content_management/rpc/search";
+    public ProvisioningPlan.SpacePlan plan(List<String> combinedMatches) throws Exception {
+        if (config == null || config.getSettings() == null) {
+            throw new IllegalStateException("A configuration is required to compute a plan");
+        }
+        KibanaConfig.AppSettings settings = config.getSettings();
+        ProvisioningPlan.SpacePlan plan = new ProvisioningPlan.SpacePlan();
+        plan.setProject(projectName);
+        plan.setEnvironment(projectEnv);
+        plan.setSpace(spaceName);
+
+        boolean spaceExists = true;
+        if (settings.isAutoCreateSpace() || settings.isAutoAddIndices()) {
+            if (stateStore == null || !stateStore.isSpaceFresh(spaceName)) {
+                spaceExists = getMetrics().time("space", this::spaceExists);
+            }
+            plan.setCreateSpace(!spaceExists);
+        }
 
-        ObjectNode searchBody = objectMapper.createObjectNode();
-        searchBody.put("contentTypeId", "index-pattern");
+        if (settings.isAutoAddIndices()) {
+            Set<String> baseNames = new TreeSet<>(extractBaseNames(combinedMatches));
+            if (!spaceExists || isUpsertDataViews()) {
+                // 新空间中没有视图；upsert 模式覆盖写入，均无需读取现有视图
+                plan.getCreateDataViews().addAll(baseNames);
+            } else if (isReconcileDataViews()) {
+                if (combinedMatches.isEmpty()) {
+                    // 与 provisionDataViews 一致：没有匹配的索引时不改动空间，避免删除全部视图
+                    reporter.warn("⚠️ " + spaceName + ": no combined matching indices found, leaving data views unchanged.");
+                } else {
+                    Set<String> missing = new LinkedHashSet<>(baseNames);
+                    diffDataViews(missing, plan.getDeleteDataViews());
+                    plan.getCreateDataViews().addAll(missing);
+                }
+            } else {
+                forEachKnownDataview((id, title) -> plan.getDeleteDataViews().add(id));
+                plan.getCreateDataViews().addAll(baseNames);
+            }
+        }
 
-        ObjectNode query = objectMapper.createObjectNode();
-        query.put("limit", 10000);
-        searchBody.set("query", query);
+        if (settings.isAutoCreateRole()) {
+            ObjectNode role = createRoleBody();
+            if (!isUnchangedInState("role", objectMapper.writeValueAsString(role))) {
+                plan.setRole(role);
+            }
+        }
+        if (settings.isAutoCreateUser()) {
+            ObjectNode user = createUserBody();
+            if (!isUnchangedInState("user", objectMapper.writeValueAsString(user))) {
+                plan.setUser(user);
+            }
+        }
+        return plan;
+    }
 
-        ObjectNode options = objectMapper.createObjectNode();
-        ArrayNode fields = objectMapper.createArrayNode();
-        fields.add("title");
-        fields.add("type");
-        fields.add("typeMeta");
-        fields.add("name");
-        options.set("fields", fields);
-        searchBody.set("options", options);
-        searchBody.put("version", 1);
-
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Authorization", getBasicAuthHeader())
-                .header("Content-Type", "application/json")
-                .header("kbn-xsrf", "true")
-                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(searchBody)))
-                .build();
-
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-        if (response.statusCode() == 200) {
-            JsonNode jsonNode = objectMapper.readTree(response.body());
-            JsonNode hits = jsonNode.get("result").get("result").get("hits");
-            List<JsonNode> dataviews = new ArrayList<>();
-            for (JsonNode hit : hits) {
-                dataviews.add(hit);
-            }
-            return dataviews;
-        } else {
-            throw new RuntimeException("Failed to fetch dataviews: " + response.statusCode() + " - " + response.body());
+    /**
+     * Execute a plan computed for this space exactly as written, without reading from Kibana;
+     * data view deletes and creates are sent concurrently
+     */
+    public void apply(ProvisioningPlan.SpacePlan plan) throws Exception {
+        if (!spaceName.equals(plan.getSpace())) {
+            throw new IllegalArgumentException("Plan for space " + plan.getSpace() + " cannot be applied to " + spaceName);
+        }
+        if (plan.isCreateSpace()) {
+            getMetrics().time("space", this::createSpace);
+        }
+        if (stateStore != null) {
+            stateStore.recordSpace(spaceName);
+        }
+        // 删除必须先于创建完成：删除全部模式下要重建的视图与被删除的视图 ID 相同
+        if (!plan.getDeleteDataViews().isEmpty()) {
+            deleteDataviews(plan.getDeleteDataViews()).printSummary(reporter);
         }
+        if (!plan.getCreateDataViews().isEmpty()) {
+            addIndices(plan.getCreateDataViews()).printSummary(reporter);
+        }
+        if (plan.getRole() != null) {
+            writeRole(objectMapper.writeValueAsString(plan.getRole()));
+        }
+        if (plan.getUser() != null) {
+            writeUser(objectMapper.writeValueAsString(plan.getUser()));
+        }
+    }
+
+    /**
+     * Whether the same role or user body was written for this space recently enough to trust the state
+     */
+    private boolean isUnchangedInState(String kind, String body) {
+        return stateStore != null && StateStore.hash(body).equals(stateStore.getHash(spaceName, kind));
+    }
+
+    /**
+     * Pass every data view of the space to the consumer as (id, title): from the state store
+     * while it is fresh, otherwise read from Kibana, refreshing the state on the way
+     */
+    private void forEachKnownDataview(BiConsumer<String, String> consumer) throws Exception {
+        if (stateStore == null) {
+            forEachDataview(consumer);
+            return;
+        }
+        if (stateStore.isFresh(spaceName)) {
+            Map<String, String> known = stateStore.getDataViews(spaceName);
+            reporter.detail("ℹ️ Using " + known.size() + " data views of " + spaceName + " from state");
+            known.forEach(consumer);
+            return;
+        }
+        Map<String, String> discovered = new LinkedHashMap<>();
+        forEachDataview((id, title) -> {
+            discovered.put(id, title);
+            consumer.accept(id, title);
+        });
+        stateStore.replaceDataViews(spaceName, discovered);
+    }
+
+    /**
+     * Stream the id and title of every index-pattern (data view) in the space, page by page,
+     * so spaces beyond a single search limit are read completely. Kibana reads the cursor
+     * as a 1-based page number and only reports the total, so pages are requested until
+     * one comes back short or the total has been read.
+     */
+    private void forEachDataview(BiConsumer<String, String> consumer) throws Exception {
+        int pageSize = config != null && config.getSettings() != null ? config.getSettings().getDataViewPageSize() : 1000;
+        // Kibana 单页最多返回 10,000 条，更大的页大小会被截断，导致误判为最后一页
+        pageSize = Math.max(1, Math.min(pageSize, MAX_DATA_VIEW_PAGE_SIZE));
+        long seen = 0;
+        for (int page = 1; ; page++) {
+            ObjectNode searchBody = objectMapper.createObjectNode();
+            searchBody.put("contentTypeId", "index-pattern");
+
+            ObjectNode query = objectMapper.createObjectNode();
+            query.put("limit", pageSize);
+            query.put("cursor", String.valueOf(page));
+            searchBody.set("query", query);
+
+            ObjectNode options = objectMapper.createObjectNode();
+            ArrayNode fields = objectMapper.createArrayNode();
+            fields.add("title");
+            options.set("fields", fields);
+            searchBody.set("options", options);
+            searchBody.put("version", 1);
+
+            HttpResponse<InputStream> response = transport.send(transport.postJson(
+                    "/s/" + spaceName + "/api/content_management/rpc/search", objectMapper.writeValueAsString(searchBody)),
+                    HttpResponse.BodyHandlers.ofInputStream(), true);
+
+            if (response.statusCode() != 200) {
+                String body;
+                try (InputStream errorStream = response.body()) {
+                    body = new String(errorStream.readAllBytes(), StandardCharsets.UTF_8);
+                }
+                throw new RuntimeException("Failed to fetch dataviews: " + response.statusCode() + " - " + body);
+            }
+
+            int[] hits = new int[1];
+            long total = DataViewPageReader.read(objectMapper.getFactory(), response.body(), (id, title) -> {
+                hits[0]++;
+                consumer.accept(id, title);
+            });
+            seen += hits[0];
+            // 不满一页（包括空页）或已读完 total 时结束；即使服务端忽略页码，total 也保证循环会结束
+            if (hits[0] < pageSize || (total >= 0 && seen >= total)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Derive a stable dataview ID from the space and base name, so repeated
+     * or retried creates of the same view always target the same object
+     */
+    public String dataViewId(String indexName) {
+        String key = spaceName + ":" + indexName;
+        return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString();
     }
 
     /**
      * Create the body for index-pattern creation
      */
-    private ObjectNode createIndexBody(String indexName, String uuid) {
+    private ObjectNode createIndexBody(String indexName, String uuid, boolean overwrite) {
         ObjectNode indexBody = objectMapper.createObjectNode();
         indexBody.put("contentTypeId", "index-pattern");
+        indexBody.set("data", createDataViewAttributes(indexName));
+
+        ObjectNode options = objectMapper.createObjectNode();
+        options.put("id", uuid);
+        options.put("overwrite", overwrite);
+        indexBody.set("options", options);
+        indexBody.put("version", 1);
+
+        return indexBody;
+    }
 
+    /**
+     * Attributes of the index-pattern for a base name, shared by create and import
+     */
+    private ObjectNode createDataViewAttributes(String indexName) {
         ObjectNode data = objectMapper.createObjectNode();
         data.put("fieldAttrs", "{}");
         data.put("title", indexName + "*");
@@ -730,15 +1415,7 @@ public class KibanaUtils {
         data.put("runtimeFieldMap", "{}");
         data.put("name", indexName);
         data.put("allowHidden", false);
-        indexBody.set("data", data);
-
-        ObjectNode options = objectMapper.createObjectNode();
-        options.put("id", uuid);
-        options.put("overwrite", false);
-        indexBody.set("options", options);
-        indexBody.put("version", 1);
-
-        return indexBody;
+        return data;
     }
 
     /**
@@ -1,34 +1,90 @@
 package io.github.devops;
 
+import java.nio.file.Path;
+
 public class Main {
     public static void main(String[] args) {
-        System.out.println("Starting Kibana Utils Demo...");
-        
         try {
-            // 从YAML配置文件加载配置
-            System.out.println("📄 Loading configuration from YAML...");
-            KibanaConfig config = KibanaConfig.loadDefault();
-            
-            // 创建KibanaUtils实例
+            // 从YAML配置文件加载配置，输出级别和格式也由配置决定；可通过第一个参数或 KIBANA_CONFIG 指定外部文件
+            Path configFile = KibanaConfig.externalConfigPath(args);
+            KibanaConfig config = configFile != null ? KibanaConfig.loadFromFile(configFile) : KibanaConfig.loadDefault();
+            try (Reporter reporter = Reporter.fromSettings(config.getSettings())) {
+                run(config, configFile, reporter);
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Error occurred: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static void run(KibanaConfig config, Path configFile, Reporter reporter) throws Exception {
+        reporter.summary("Starting Kibana Utils Demo...");
+        reporter.summary("📄 Configuration loaded from " + (configFile != null ? configFile : "YAML"));
+        
+        // 计划模式：plan 只读取并生成变更计划，apply 按计划文件执行写入
+        String planMode = config.getSettings().getPlanMode();
+        if ("plan".equalsIgnoreCase(planMode) || "apply".equalsIgnoreCase(planMode)) {
+            try (ProvisioningPlanner planner = new ProvisioningPlanner(config, reporter)) {
+                if ("plan".equalsIgnoreCase(planMode)) {
+                    planner.plan();
+                } else {
+                    planner.apply();
+                }
+            }
+            reporter.summary("🎉 All operations completed successfully!");
+            return;
+        }
+        
+        // 守护模式：定期检查新索引，只为新出现的基础名称创建数据视图
+        if (config.getSettings().getDaemonIntervalSeconds() > 0) {
+            runDaemon(config, configFile, reporter);
+            return;
+        }
+        
+        // 配置了多个项目时，以批量模式在同一进程中处理所有项目
+        if (config.isFleetMode()) {
+            new FleetProvisioner(config, reporter).run();
+            reporter.summary("🎉 All operations completed successfully!");
+            return;
+        }
+        
+        runProject(config, reporter);
+        reporter.summary("🎉 All operations completed successfully!");
+    }
+
+    /**
+     * Provision the single configured project: show the index summary, then create the
+     * space, data views, role and user as configured
+     *
+     * @return the data view report, or null if data views are not added
+     */
+    static ProvisioningReport runProject(KibanaConfig config, Reporter reporter) throws Exception {
+        // 创建共享的HTTP传输层和KibanaUtils实例；失败的运行同样关闭资源并导出指标
+        KibanaTransport transport = KibanaTransport.fromConfig(config);
+        ProvisioningReport report = null;
+        try (transport;
+             IndexSource indexSource = IndexSource.fromConfig(config, transport, ObjectMappers.json());
+             StateStore stateStore = StateStore.fromConfig(config, ObjectMappers.json())) {
             KibanaUtils kibanaUtils = new KibanaUtils(
                     config.getProject().getName(),
                     config.getProject().getEnvironment(),
-                    config.getKibana().getBaseUrl(),
-                    config.getKibana().getUsername(),
-                    config.getKibana().getPassword()
+                    transport
             );
             
             // 设置配置到KibanaUtils
             kibanaUtils.setConfig(config);
+            kibanaUtils.setReporter(reporter);
+            kibanaUtils.setIndexSource(indexSource);
+            kibanaUtils.setStateStore(stateStore);
             
-            System.out.println("✅ KibanaUtils instance created successfully!");
-            System.out.println("   Project: " + config.getProject().getName());
-            System.out.println("   Environment: " + config.getProject().getEnvironment());
-            System.out.println("   Space Name: " + kibanaUtils.getSpaceName());
-            System.out.println("   Kibana URL: " + config.getKibana().getBaseUrl());
+            reporter.summary("✅ KibanaUtils instance created successfully!");
+            reporter.summary("   Project: " + config.getProject().getName());
+            reporter.summary("   Environment: " + config.getProject().getEnvironment());
+            reporter.summary("   Space Name: " + kibanaUtils.getSpaceName());
+            reporter.summary("   Kibana URL: " + config.getKibana().getBaseUrl());
             
             // 根据配置文件匹配规则获取并显示索引清单
-            System.out.println("\n🔍 Fetching indices based on configuration patterns...");
+            reporter.summary("\n🔍 Fetching indices based on configuration patterns...");
             if (config.getSettings().isShowDetailedMatching()) {
                 kibanaUtils.displayConfigBasedIndicesSummary();
             } else {
@@ -36,34 +92,48 @@ public class Main {
             }
             
             // 询问用户是否继续执行操作
-            System.out.println("\n⚡ Ready to execute configured operations...");
+            reporter.summary("\n⚡ Ready to execute configured operations...");
             
             // 根据配置执行操作
             if (config.getSettings().isAutoCreateSpace()) {
-                System.out.println("\n📁 Ensuring Kibana space exists...");
+                reporter.summary("\n📁 Ensuring Kibana space exists...");
                 kibanaUtils.ensureSpace();
             }
             
             if (config.getSettings().isAutoAddIndices()) {
-                System.out.println("\n📊 Adding data views based on combined matching indices...");
-                kibanaUtils.addCombinedMatchingDataViews();
+                reporter.summary("\n📊 Adding data views based on combined matching indices...");
+                report = kibanaUtils.addCombinedMatchingDataViews();
             }
             
             if (config.getSettings().isAutoCreateRole()) {
-                System.out.println("\n👤 Creating project role...");
+                reporter.summary("\n👤 Creating project role...");
                 kibanaUtils.createRole();
             }
             
             if (config.getSettings().isAutoCreateUser()) {
-                System.out.println("\n🔐 Creating project user...");
+                reporter.summary("\n🔐 Creating project user...");
                 kibanaUtils.createUser();
             }
-            
-            System.out.println("🎉 All operations completed successfully!");
-            
-        } catch (Exception e) {
-            System.err.println("❌ Error occurred: " + e.getMessage());
-            e.printStackTrace();
+        } finally {
+            transport.getMetrics().export(config.getSettings(), reporter);
+        }
+        return report;
+    }
+
+    /**
+     * Run the daemon until the process is stopped, e.g. with Ctrl+C or SIGTERM; an external
+     * configuration file is watched and its matching rules are reloaded on change
+     */
+    private static void runDaemon(KibanaConfig config, Path configFile, Reporter reporter) throws Exception {
+        ProvisioningDaemon daemon = new ProvisioningDaemon(config, reporter);
+        if (configFile != null) {
+            daemon.watchConfig(configFile);
         }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            daemon.close();
+            reporter.close();
+        }, "daemon-shutdown"));
+        daemon.start();
+        daemon.awaitTermination();
     }
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package io.github.devops;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+
+/**
+ * Process-wide Jackson mappers, each created on first use.
+ *
+ * Building a mapper and warming its serializer caches is a noticeable part of a
+ * short run, and an unmodified mapper is thread-safe, so all components share
+ * these instances. Callers must not reconfigure them.
+ */
+public final class ObjectMappers {
+    private ObjectMappers() {
+    }
+
+    public static ObjectMapper json() {
+        return JsonHolder.MAPPER;
+    }
+
+    public static ObjectMapper yaml() {
+        return YamlHolder.MAPPER;
+    }
+
+    // 按需持有者：类在首次访问时才初始化，且由 JVM 保证只初始化一次
+    private static final class JsonHolder {
+        private static final ObjectMapper MAPPER = new ObjectMapper();
+    }
+
+    private static final class YamlHolder {
+        private static final ObjectMapper MAPPER = new ObjectMapper(new YAMLFactory());
+    }
+}
@@ -0,0 +1,346 @@
+package io.github.devops;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Long-running mode that keeps data views in step with newly appearing indices.
+ *
+ * The first tick provisions every project as a normal run would and remembers the
+ * base names it saw. Every later tick fetches the index list once and only creates
+ * data views for base names that were not seen before, so a tick costs one list
+ * fetch plus a write per new base name. The known base names live in memory; with
+ * stateFile set, a restarted daemon also skips the discovery calls of its first tick.
+ * With an external configuration file being watched, changed index matching rules
+ * are compiled in the background and swapped in at the start of the next tick.
+ */
+public class ProvisioningDaemon implements AutoCloseable {
+    private final KibanaConfig config;
+    private final Reporter reporter;
+    private final KibanaTransport transport;
+    private final IndexSource indexSource;
+    private final StateStore stateStore;
+    private final List<Tenant> tenants = new ArrayList<>();
+    private IndexRouter<Tenant> router;
+    private ConfigReloader<Matching> reloader;
+    private final ScheduledExecutorService scheduler;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private long ticks;
+
+    public ProvisioningDaemon(KibanaConfig config, Reporter reporter) {
+        this.config = config;
+        this.reporter = reporter;
+        this.transport = KibanaTransport.fromConfig(config);
+        this.indexSource = IndexSource.fromConfig(config, transport, ObjectMappers.json());
+        this.stateStore = StateStore.fromConfig(config, ObjectMappers.json());
+
+        List<KibanaConfig.ProjectSettings> projects = config.isFleetMode() ? config.getProjects() : List.of(config.getProject());
+        Map<Tenant, IndexMatcher> matchers = new LinkedHashMap<>();
+        for (KibanaConfig.ProjectSettings project : projects) {
+            KibanaUtils kibanaUtils = new KibanaUtils(project.getName(), project.getEnvironment(), transport);
+            kibanaUtils.setConfig(config);
+            kibanaUtils.setReporter(reporter);
+            kibanaUtils.setIndexSource(indexSource);
+            kibanaUtils.setStateStore(stateStore);
+            Tenant tenant = new Tenant(kibanaUtils, project);
+            if (config.isFleetMode()) {
+                IndexMatcher matcher = FleetProvisioner.matcherFor(project);
+                kibanaUtils.setIndexMatcher(matcher);
+                matchers.put(tenant, matcher);
+            }
+            tenants.add(tenant);
+        }
+        this.router = config.isFleetMode() ? new IndexRouter<>(matchers) : null;
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "provisioning-daemon");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Reload the index matching rules whenever the given configuration file changes.
+     * Only the matching rules take effect; connection settings and the project list
+     * require a restart.
+     */
+    public void watchConfig(Path configFile) throws IOException {
+        this.reloader = new ConfigReloader<>(configFile, this::compile, reporter).start();
+        reporter.summary("👀 Watching " + configFile + " for index matching changes");
+    }
+
+    /**
+     * Build the matchers, router and base name extractor of a reloaded configuration; runs on
+     * the watcher thread and throws if the configuration cannot be applied
+     */
+    private Matching compile(KibanaConfig reloaded) {
+        if (reloaded.isFleetMode() != config.isFleetMode()) {
+            throw new IllegalArgumentException("switching between single and fleet mode requires a restart");
+        }
+        List<KibanaConfig.ProjectSettings> projects = reloaded.isFleetMode() ? reloaded.getProjects() : List.of(reloaded.getProject());
+        for (KibanaConfig.ProjectSettings project : projects) {
+            boolean known = false;
+            for (Tenant tenant : tenants) {
+                known |= isSameProject(project, tenant.project);
+            }
+            if (!known) {
+                throw new IllegalArgumentException("project " + (project.getName() + "-" + project.getEnvironment()).toLowerCase()
+                        + " was added; changing the project list requires a restart");
+            }
+        }
+        Matching matching = new Matching();
+        for (Tenant tenant : tenants) {
+            KibanaConfig.ProjectSettings project = null;
+            for (KibanaConfig.ProjectSettings candidate : projects) {
+                if (isSameProject(candidate, tenant.project)) {
+                    project = candidate;
+                }
+            }
+            if (project == null) {
+                throw new IllegalArgumentException("project " + tenant.kibanaUtils.getSpaceName()
+                        + " was removed; changing the project list requires a restart");
+            }
+            if (reloaded.isFleetMode()) {
+                matching.matchers.put(tenant, FleetProvisioner.matcherFor(project));
+            } else {
+                matching.matchers.put(tenant, reloaded.getIndexMatching() != null
+                        ? IndexMatcher.fromSettings(reloaded.getIndexMatching())
+                        : IndexMatcher.forProject(project.getName(), project.getEnvironment()));
+            }
+        }
+        KibanaConfig.IndexMatchingSettings indexMatching = reloaded.getIndexMatching();
+        matching.baseNameExtractor = indexMatching != null && indexMatching.getDateSuffixFormats() != null
+                ? new BaseNameExtractor(indexMatching.getDateSuffixFormats())
+                : BaseNameExtractor.defaults();
+        matching.router = reloaded.isFleetMode() ? new IndexRouter<>(matching.matchers) : null;
+        return matching;
+    }
+
+    private static boolean isSameProject(KibanaConfig.ProjectSettings a, KibanaConfig.ProjectSettings b) {
+        return a.getName().equals(b.getName()) && a.getEnvironment().equals(b.getEnvironment());
+    }
+
+    /**
+     * Swap in the last reloaded matching rules, if any; called on the tick thread between ticks
+     */
+    private void applyReload() {
+        Matching matching = reloader != null ? reloader.poll() : null;
+        if (matching == null) {
+            return;
+        }
+        for (Map.Entry<Tenant, IndexMatcher> entry : matching.matchers.entrySet()) {
+            entry.getKey().kibanaUtils.setIndexMatcher(entry.getValue());
+            entry.getKey().kibanaUtils.setBaseNameExtractor(matching.baseNameExtractor);
+        }
+        this.router = matching.router;
+        reporter.summary("✅ Applied reloaded index matching rules to " + tenants.size() + " project(s)");
+    }
+
+    /**
+     * Run the first tick now and then one tick per configured interval
+     */
+    public void start() {
+        long interval = Math.max(1, config.getSettings().getDaemonIntervalSeconds());
+        reporter.summary("⏱️ Daemon mode: checking " + tenants.size() + " project(s) for new indices every " + interval + " s");
+        reporter.flush();
+        // 固定间隔从上一次结束开始计算，慢的一轮不会与下一轮重叠
+        scheduler.scheduleWithFixedDelay(this::tick, 0, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Block until {@link #close()} is called
+     */
+    public void awaitTermination() throws InterruptedException {
+        stopped.await();
+    }
+
+    /**
+     * Run one tick: fetch the index list and create data views for new base names
+     */
+    void tick() {
+        long start = System.nanoTime();
+        ticks++;
+        int initialized = 0;
+        int created = 0;
+        int failed = 0;
+        try {
+            applyReload();
+            Map<Tenant, List<String>> matches = fetchMatches();
+            for (Tenant tenant : tenants) {
+                try {
+                    if (!tenant.initialized) {
+                        initialize(tenant, matches.get(tenant));
+                        initialized++;
+                    } else {
+                        ProvisioningReport report = createNewDataViews(tenant, matches.get(tenant));
+                        if (report != null) {
+                            created += report.getSucceeded().size();
+                            failed += report.getFailed().size();
+                        }
+                    }
+                } catch (Exception e) {
+                    failed++;
+                    reporter.warn("❌ " + tenant.kibanaUtils.getSpaceName() + ": " + e.getMessage());
+                }
+            }
+        } catch (Exception e) {
+            // 单次失败不终止调度，下一轮重试
+            reporter.warn("❌ Daemon tick " + ticks + " failed: " + e.getMessage());
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (initialized > 0) {
+            reporter.summary("🔁 Tick " + ticks + ": initial provisioning of " + initialized + " project(s) in " + elapsedMillis + " ms");
+        } else if (created > 0 || failed > 0) {
+            reporter.summary("🔁 Tick " + ticks + ": " + created + " new data views, " + failed + " failed in " + elapsedMillis + " ms");
+        } else {
+            reporter.detail("🔁 Tick " + ticks + ": no new indices (" + elapsedMillis + " ms)");
+        }
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("tick", ticks);
+        fields.put("initialized", initialized);
+        fields.put("created", created);
+        fields.put("failed", failed);
+        fields.put("elapsedMillis", elapsedMillis);
+        reporter.record(Reporter.Level.SUMMARY, "tick", fields);
+        reporter.flush();
+    }
+
+    /**
+     * Combined matches of every project from a single fresh fetch of the index list
+     */
+    private Map<Tenant, List<String>> fetchMatches() throws Exception {
+        Map<Tenant, List<String>> matches = new LinkedHashMap<>();
+        for (Tenant tenant : tenants) {
+            matches.put(tenant, new ArrayList<>());
+        }
+
+        KibanaUtils first = tenants.get(0).kibanaUtils;
+        first.invalidateIndexCache();
+        if (router == null) {
+            // 单项目时可由索引来源在服务端过滤
+            matches.get(tenants.get(0)).addAll(first.getCombinedMatches());
+        } else {
+            first.classifyEachIndex(index -> router.route(index, tenant -> matches.get(tenant).add(index)));
+        }
+        return matches;
+    }
+
+    /**
+     * Provision a project as a normal run does and remember the base names that now have a data view
+     */
+    private void initialize(Tenant tenant, List<String> combinedMatches) throws Exception {
+        KibanaUtils kibanaUtils = tenant.kibanaUtils;
+        KibanaConfig.AppSettings settings = config.getSettings();
+        if (settings.isAutoCreateSpace() || settings.isAutoAddIndices()) {
+            kibanaUtils.ensureSpace();
+        }
+        if (settings.isAutoAddIndices()) {
+            ProvisioningReport report = kibanaUtils.provisionDataViews(combinedMatches);
+            // 与后续轮次一致：只记录已创建或已存在的基础名称，失败的下一轮重试
+            tenant.knownBaseNames.addAll(report.getSucceeded());
+            tenant.knownBaseNames.addAll(report.getSkipped());
+        }
+        if (settings.isAutoCreateRole()) {
+            kibanaUtils.createRole();
+        }
+        if (settings.isAutoCreateUser()) {
+            kibanaUtils.createUser();
+        }
+        tenant.initialized = true;
+    }
+
+    /**
+     * Create data views only for base names not seen in earlier ticks; null if there are none
+     */
+    private ProvisioningReport createNewDataViews(Tenant tenant, List<String> combinedMatches) throws Exception {
+        if (!config.getSettings().isAutoAddIndices()) {
+            return null;
+        }
+        Set<String> newBaseNames = new LinkedHashSet<>();
+        for (String index : combinedMatches) {
+            String baseName = tenant.kibanaUtils.baseNameOf(index);
+            if (!baseName.isEmpty() && !tenant.knownBaseNames.contains(baseName)) {
+                newBaseNames.add(baseName);
+            }
+        }
+        if (newBaseNames.isEmpty()) {
+            return null;
+        }
+
+        reporter.summary("✨ " + tenant.kibanaUtils.getSpaceName() + ": " + newBaseNames.size() + " new base names");
+        ProvisioningReport report = tenant.kibanaUtils.addIndices(newBaseNames);
+        report.printSummary(reporter);
+        // 失败的基础名称不记入状态，下一轮重试
+        tenant.knownBaseNames.addAll(report.getSucceeded());
+        tenant.knownBaseNames.addAll(report.getSkipped());
+        return report;
+    }
+
+    /**
+     * Stop scheduling, wait for a running tick, and export the metrics of the whole session
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        if (reloader != null) {
+            reloader.close();
+        }
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(30, TimeUnit.SECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            scheduler.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        indexSource.close();
+        transport.close();
+        if (stateStore != null) {
+            stateStore.close();
+        }
+        transport.getMetrics().export(config.getSettings(), reporter);
+        reporter.flush();
+        stopped.countDown();
+    }
+
+    /**
+     * A project with the base names it already has data views for
+     */
+    private static final class Tenant {
+        private final KibanaUtils kibanaUtils;
+        private final KibanaConfig.ProjectSettings project;
+        private final Set<String> knownBaseNames = new HashSet<>();
+        private boolean initialized;
+
+        private Tenant(KibanaUtils kibanaUtils, KibanaConfig.ProjectSettings project) {
+            this.kibanaUtils = kibanaUtils;
+            this.project = project;
+        }
+    }
+
+    /**
+     * Compiled index matching rules of a reloaded configuration, swapped in as a whole
+     */
+    private static final class Matching {
+        private final Map<Tenant, IndexMatcher> matchers = new LinkedHashMap<>();
+        private IndexRouter<Tenant> router;
+        private BaseNameExtractor baseNameExtractor;
+    }
+}
@@ -0,0 +1,163 @@
+package io.github.devops;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Full set of changes a run would make, computed in a read-only pass.
+ *
+ * A plan lists, per space, whether the space is created, which data views are
+ * deleted and created, and the exact role and user bodies to write. It is written
+ * as JSON by {@code planMode: plan} and executed as-is by {@code planMode: apply}
+ * without reading anything from Kibana again.
+ */
+public class ProvisioningPlan {
+    public static final int VERSION = 1;
+
+    @JsonProperty("version")
+    private int version = VERSION;
+
+    @JsonProperty("baseUrl")
+    private String baseUrl;
+
+    @JsonProperty("createdAt")
+    private String createdAt;
+
+    @JsonProperty("spaces")
+    private List<SpacePlan> spaces = new ArrayList<>();
+
+    /**
+     * Changes for one project/environment space; applied in field order
+     */
+    public static class SpacePlan {
+        @JsonProperty("project")
+        private String project;
+
+        @JsonProperty("environment")
+        private String environment;
+
+        @JsonProperty("space")
+        private String space;
+
+        @JsonProperty("createSpace")
+        private boolean createSpace;
+
+        @JsonProperty("deleteDataViews")
+        private List<String> deleteDataViews = new ArrayList<>();
+
+        @JsonProperty("createDataViews")
+        private List<String> createDataViews = new ArrayList<>();
+
+        @JsonProperty("role")
+        private JsonNode role;
+
+        @JsonProperty("user")
+        private JsonNode user;
+
+        public String getProject() { return project; }
+        public void setProject(String project) { this.project = project; }
+
+        public String getEnvironment() { return environment; }
+        public void setEnvironment(String environment) { this.environment = environment; }
+
+        public String getSpace() { return space; }
+        public void setSpace(String space) { this.space = space; }
+
+        public boolean isCreateSpace() { return createSpace; }
+        public void setCreateSpace(boolean createSpace) { this.createSpace = createSpace; }
+
+        public List<String> getDeleteDataViews() { return deleteDataViews; }
+        public void setDeleteDataViews(List<String> deleteDataViews) { this.deleteDataViews = deleteDataViews; }
+
+        public List<String> getCreateDataViews() { return createDataViews; }
+        public void setCreateDataViews(List<String> createDataViews) { this.createDataViews = createDataViews; }
+
+        public JsonNode getRole() { return role; }
+        public void setRole(JsonNode role) { this.role = role; }
+
+        public JsonNode getUser() { return user; }
+        public void setUser(JsonNode user) { this.user = user; }
+
+        /**
+         * Whether applying this space would send any write
+         */
+        public boolean hasChanges() {
+            return createSpace || !deleteDataViews.isEmpty() || !createDataViews.isEmpty() || role != null || user != null;
+        }
+    }
+
+    public int getVersion() { return version; }
+    public void setVersion(int version) { this.version = version; }
+
+    public String getBaseUrl() { return baseUrl; }
+    public void setBaseUrl(String baseUrl) { this.baseUrl = baseUrl; }
+
+    public String getCreatedAt() { return createdAt; }
+    public void setCreatedAt(String createdAt) { this.createdAt = createdAt; }
+
+    public List<SpacePlan> getSpaces() { return spaces; }
+    public void setSpaces(List<SpacePlan> spaces) { this.spaces = spaces; }
+
+    public static ProvisioningPlan read(Path file, ObjectMapper objectMapper) throws IOException {
+        ProvisioningPlan plan = objectMapper.readValue(file.toFile(), ProvisioningPlan.class);
+        if (plan.getVersion() != VERSION) {
+            throw new IOException("Unsupported plan version " + plan.getVersion() + " in " + file);
+        }
+        return plan;
+    }
+
+    public void write(Path file, ObjectMapper objectMapper) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), this);
+    }
+
+    /**
+     * Report one line per space with changes plus the totals
+     */
+    public void printSummary(Reporter reporter) {
+        int spacesCreated = 0;
+        int deletes = 0;
+        int creates = 0;
+        int roles = 0;
+        int users = 0;
+        for (SpacePlan space : spaces) {
+            spacesCreated += space.isCreateSpace() ? 1 : 0;
+            deletes += space.getDeleteDataViews().size();
+            creates += space.getCreateDataViews().size();
+            roles += space.getRole() != null ? 1 : 0;
+            users += space.getUser() != null ? 1 : 0;
+            if (space.hasChanges()) {
+                reporter.summary("  📝 " + space.getSpace() + ":"
+                        + (space.isCreateSpace() ? " create space," : "")
+                        + " +" + space.getCreateDataViews().size() + " / -" + space.getDeleteDataViews().size() + " data views"
+                        + (space.getRole() != null ? ", role" : "")
+                        + (space.getUser() != null ? ", user" : ""));
+            } else {
+                reporter.detail("  ✔️ " + space.getSpace() + ": no changes");
+            }
+        }
+        reporter.summary("📋 Plan: " + spacesCreated + " spaces to create, " + creates + " data views to create, "
+                + deletes + " to delete, " + roles + " roles and " + users + " users to write");
+
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("spaces", spaces.size());
+        fields.put("spacesToCreate", spacesCreated);
+        fields.put("dataViewsToCreate", creates);
+        fields.put("dataViewsToDelete", deletes);
+        fields.put("roles", roles);
+        fields.put("users", users);
+        reporter.record(Reporter.Level.SUMMARY, "plan", fields);
+    }
+}
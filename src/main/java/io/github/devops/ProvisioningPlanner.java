@@ -0,0 +1,165 @@
+package io.github.devops;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Two-phase provisioning: a read-only plan step and an apply step.
+ *
+ * {@link #plan()} fetches the index list once, reads the spaces and data views of
+ * every project and writes the resulting {@link ProvisioningPlan} to planFile
+ * without sending a single write. {@link #apply()} reads that file and executes it
+ * as written, spaces concurrently, without reading from Kibana again, so what is
+ * applied is exactly what was reviewed. Works for a single project and for fleets.
+ */
+public class ProvisioningPlanner implements AutoCloseable {
+    private final KibanaConfig config;
+    private final Reporter reporter;
+    private final KibanaTransport transport;
+    private final IndexSource indexSource;
+    private final StateStore stateStore;
+    private final ObjectMapper objectMapper = ObjectMappers.json();
+
+    public ProvisioningPlanner(KibanaConfig config, Reporter reporter) {
+        this.config = config;
+        this.reporter = reporter;
+        this.transport = KibanaTransport.fromConfig(config);
+        this.indexSource = IndexSource.fromConfig(config, transport, objectMapper);
+        this.stateStore = StateStore.fromConfig(config, objectMapper);
+    }
+
+    /**
+     * Compute the plan of every configured project and write it to planFile
+     */
+    public ProvisioningPlan plan() throws Exception {
+        List<KibanaConfig.ProjectSettings> projects = config.isFleetMode() ? config.getProjects() : List.of(config.getProject());
+        Map<KibanaUtils, List<String>> matches = new LinkedHashMap<>();
+        Map<KibanaUtils, IndexMatcher> matchers = new LinkedHashMap<>();
+        for (KibanaConfig.ProjectSettings project : projects) {
+            KibanaUtils kibanaUtils = createKibanaUtils(project.getName(), project.getEnvironment());
+            if (config.isFleetMode()) {
+                IndexMatcher matcher = FleetProvisioner.matcherFor(project);
+                kibanaUtils.setIndexMatcher(matcher);
+                matchers.put(kibanaUtils, matcher);
+            }
+            matches.put(kibanaUtils, new ArrayList<>());
+        }
+
+        reporter.summary("\n🔍 Planning changes for " + projects.size() + " project(s) (dry run, nothing is written)...");
+        if (config.getSettings().isAutoAddIndices()) {
+            KibanaUtils first = matches.keySet().iterator().next();
+            if (matchers.isEmpty()) {
+                matches.get(first).addAll(first.getCombinedMatches());
+            } else {
+                IndexRouter<KibanaUtils> router = new IndexRouter<>(matchers);
+                first.classifyEachIndex(index -> router.route(index, kibanaUtils -> matches.get(kibanaUtils).add(index)));
+            }
+        }
+
+        ProvisioningPlan plan = new ProvisioningPlan();
+        plan.setBaseUrl(config.getKibana().getBaseUrl());
+        plan.setCreatedAt(Instant.now().toString());
+        List<Future<ProvisioningPlan.SpacePlan>> futures = new ArrayList<>();
+        ExecutorService executor = newExecutor();
+        try {
+            for (Map.Entry<KibanaUtils, List<String>> entry : matches.entrySet()) {
+                futures.add(executor.submit(() -> entry.getKey().plan(entry.getValue())));
+            }
+            for (Future<ProvisioningPlan.SpacePlan> future : futures) {
+                plan.getSpaces().add(future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Path planFile = planFile();
+        plan.write(planFile, objectMapper);
+        plan.printSummary(reporter);
+        reporter.summary("💾 Plan written to " + planFile + ", set planMode: apply to execute it");
+        return plan;
+    }
+
+    /**
+     * Execute the plan in planFile; returns the outcome per space
+     */
+    public ProvisioningReport apply() throws Exception {
+        Path planFile = planFile();
+        ProvisioningPlan plan = ProvisioningPlan.read(planFile, objectMapper);
+        if (!config.getKibana().getBaseUrl().equals(plan.getBaseUrl())) {
+            throw new IllegalStateException("Plan " + planFile + " was computed for " + plan.getBaseUrl()
+                    + ", not " + config.getKibana().getBaseUrl());
+        }
+        reporter.summary("\n🚀 Applying plan " + planFile + " from " + plan.getCreatedAt() + "...");
+        plan.printSummary(reporter);
+
+        ProvisioningReport report = new ProvisioningReport("Apply plan");
+        List<Future<?>> futures = new ArrayList<>();
+        ExecutorService executor = newExecutor();
+        try {
+            for (ProvisioningPlan.SpacePlan spacePlan : plan.getSpaces()) {
+                if (!spacePlan.hasChanges()) {
+                    report.recordSkipped(spacePlan.getSpace());
+                    continue;
+                }
+                futures.add(executor.submit(() -> {
+                    try {
+                        createKibanaUtils(spacePlan.getProject(), spacePlan.getEnvironment()).apply(spacePlan);
+                        report.recordSuccess(spacePlan.getSpace());
+                    } catch (Exception e) {
+                        report.recordFailure(spacePlan.getSpace(), e.getMessage());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        report.finish();
+        report.printSummary(reporter);
+        return report;
+    }
+
+    private KibanaUtils createKibanaUtils(String project, String environment) {
+        KibanaUtils kibanaUtils = new KibanaUtils(project, environment, transport);
+        kibanaUtils.setConfig(config);
+        kibanaUtils.setReporter(reporter);
+        kibanaUtils.setIndexSource(indexSource);
+        kibanaUtils.setStateStore(stateStore);
+        return kibanaUtils;
+    }
+
+    private ExecutorService newExecutor() {
+        return Executors.newFixedThreadPool(Math.max(1, config.getSettings().getMaxConcurrentProjects()));
+    }
+
+    private Path planFile() {
+        return Paths.get(config.getSettings().getPlanFile());
+    }
+
+    /**
+     * Release the transport and state file and export the metrics of the run
+     */
+    @Override
+    public void close() {
+        indexSource.close();
+        transport.close();
+        if (stateStore != null) {
+            stateStore.close();
+        }
+        transport.getMetrics().export(config.getSettings(), reporter);
+        reporter.flush();
+    }
+}
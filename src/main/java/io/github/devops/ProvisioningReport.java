@@ -0,0 +1,75 @@
+package io.github.devops;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Thread-safe collection of per-item outcomes for a batch of Kibana operations
+ */
+public class ProvisioningReport {
+    private final String operation;
+    private final List<String> succeeded = new ArrayList<>();
+    private final List<String> skipped = new ArrayList<>();
+    private final Map<String, String> failed = new LinkedHashMap<>();
+    private final long startedAt = System.nanoTime();
+    private long finishedAt;
+
+    public ProvisioningReport(String operation) {
+        this.operation = operation;
+    }
+
+    public synchronized void recordSuccess(String name) {
+        succeeded.add(name);
+    }
+
+    /**
+     * Record an item that was already in the desired state
+     */
+    public synchronized void recordSkipped(String name) {
+        skipped.add(name);
+    }
+
+    public synchronized void recordFailure(String name, String error) {
+        failed.put(name, error);
+    }
+
+    /**
+     * Mark the batch as finished so the elapsed time is fixed
+     */
+    public synchronized void finish() {
+        finishedAt = System.nanoTime();
+    }
+
+    public String getOperation() { return operation; }
+    public synchronized List<String> getSucceeded() { return Collections.unmodifiableList(new ArrayList<>(succeeded)); }
+    public synchronized List<String> getSkipped() { return Collections.unmodifiableList(new ArrayList<>(skipped)); }
+    public synchronized Map<String, String> getFailed() { return Collections.unmodifiableMap(new LinkedHashMap<>(failed)); }
+    public synchronized boolean hasFailures() { return !failed.isEmpty(); }
+
+    public synchronized long getElapsedMillis() {
+        long end = finishedAt == 0 ? System.nanoTime() : finishedAt;
+        return (end - startedAt) / 1_000_000;
+    }
+
+    /**
+     * Report a summary line plus one warning per failure
+     */
+    public synchronized void printSummary(Reporter reporter) {
+        reporter.summary("📋 " + operation + ": " + succeeded.size() + " succeeded, "
+                + skipped.size() + " unchanged, " + failed.size() + " failed in " + getElapsedMillis() + " ms");
+        for (Map.Entry<String, String> failure : failed.entrySet()) {
+            reporter.warn("  ❌ " + failure.getKey() + " - " + failure.getValue());
+        }
+
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("operation", operation);
+        fields.put("succeeded", succeeded.size());
+        fields.put("unchanged", skipped.size());
+        fields.put("failed", failed);
+        fields.put("elapsedMillis", getElapsedMillis());
+        reporter.record(Reporter.Level.SUMMARY, "report", fields);
+    }
+}
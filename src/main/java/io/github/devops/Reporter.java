@@ -0,0 +1,111 @@
+package io.github.devops;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Destination for everything a run reports.
+ *
+ * Human-readable messages are filtered by level: {@link Level#QUIET} shows only
+ * warnings, {@link Level#SUMMARY} adds headings and totals, and {@link Level#VERBOSE}
+ * adds one line per index. Structured records carry the same results for tools;
+ * the text reporter ignores them, the JSON reporters write them out.
+ */
+public interface Reporter extends AutoCloseable {
+
+    enum Level {
+        QUIET, SUMMARY, VERBOSE
+    }
+
+    /**
+     * Whether messages of the given level are written; check before building per-index output
+     */
+    boolean isEnabled(Level level);
+
+    /**
+     * Heading, total or outcome of an operation
+     */
+    void summary(String message);
+
+    /**
+     * Per-index or per-item line, only written at {@link Level#VERBOSE}
+     */
+    void detail(String message);
+
+    /**
+     * Warning or error, written at every level
+     */
+    void warn(String message);
+
+    /**
+     * Machine-readable result with the given type, written when its level is enabled
+     */
+    void record(Level level, String type, Map<String, ?> fields);
+
+    void flush();
+
+    @Override
+    void close();
+
+    default boolean isVerbose() {
+        return isEnabled(Level.VERBOSE);
+    }
+
+    /**
+     * Reporter writing text to standard output at the given level, flushed line by line
+     * since its owner may never close it
+     */
+    static Reporter console(Level level) {
+        return new TextReporter(level, stdout(), false, true);
+    }
+
+    /**
+     * Create the reporter configured by outputLevel, outputFormat and outputFile
+     */
+    static Reporter fromSettings(KibanaConfig.AppSettings settings) {
+        Level level = levelOf(settings);
+        String format = settings.getOutputFormat() != null ? settings.getOutputFormat().toLowerCase(Locale.ROOT) : "text";
+
+        Writer writer;
+        boolean ownsWriter = settings.getOutputFile() != null;
+        try {
+            writer = ownsWriter
+                    ? Files.newBufferedWriter(Paths.get(settings.getOutputFile()), StandardCharsets.UTF_8)
+                    : stdout();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open output file " + settings.getOutputFile(), e);
+        }
+
+        switch (format) {
+            case "text":
+                return new TextReporter(level, writer, ownsWriter, false);
+            case "json":
+                return new JsonReporter(level, writer, ownsWriter, false);
+            case "ndjson":
+                return new JsonReporter(level, writer, ownsWriter, true);
+            default:
+                throw new IllegalArgumentException("Unknown output format: " + settings.getOutputFormat());
+        }
+    }
+
+    /**
+     * Configured output level; without one, showDetailedMatching selects verbose or summary
+     */
+    static Level levelOf(KibanaConfig.AppSettings settings) {
+        if (settings.getOutputLevel() != null) {
+            return Level.valueOf(settings.getOutputLevel().toUpperCase(Locale.ROOT));
+        }
+        return settings.isShowDetailedMatching() ? Level.VERBOSE : Level.SUMMARY;
+    }
+
+    private static Writer stdout() {
+        return new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 64 * 1024);
+    }
+}
@@ -0,0 +1,391 @@
+package io.github.devops;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local record of what was provisioned in each space, so later runs can skip the
+ * discovery calls.
+ *
+ * The state is kept in memory and persisted as an append-only journal with one JSON
+ * object per line: every change appends a line, and the file is replayed on open.
+ * When the journal has grown well beyond the live state it is compacted by rewriting
+ * it atomically. Each resource is verified on its own and stays fresh for
+ * {@code stateVerifyHours}: the space after it was checked or created, the data views
+ * after they were read from Kibana, the role and user after they were written. After
+ * that the next run checks, reads or writes it again, which catches changes made
+ * outside this tool.
+ */
+public class StateStore implements AutoCloseable {
+    private static final int VERSION = 1;
+    private static final int MIN_LINES_BEFORE_COMPACTION = 1000;
+
+    private final Path file;
+    private final String baseUrl;
+    private final long maxAgeMillis;
+    private final ObjectMapper objectMapper;
+    private final Map<String, SpaceState> spaces = new HashMap<>();
+    private BufferedWriter journal;
+    private int journalLines;
+    private boolean truncated;
+
+    private StateStore(Path file, String baseUrl, long maxAgeMillis, ObjectMapper objectMapper) {
+        this.file = file;
+        this.baseUrl = baseUrl;
+        this.maxAgeMillis = maxAgeMillis;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Open the state file configured by stateFile, or return null when no state is kept
+     */
+    public static StateStore fromConfig(KibanaConfig config, ObjectMapper objectMapper) {
+        KibanaConfig.AppSettings settings = config.getSettings();
+        if (settings == null || settings.getStateFile() == null) {
+            return null;
+        }
+        return open(Paths.get(settings.getStateFile()), config.getKibana().getBaseUrl(),
+                TimeUnit.HOURS.toMillis(Math.max(0, settings.getStateVerifyHours())), objectMapper);
+    }
+
+    /**
+     * Replay the journal for the given Kibana; the state of another Kibana is discarded
+     */
+    public static StateStore open(Path file, String baseUrl, long maxAgeMillis, ObjectMapper objectMapper) {
+        StateStore store = new StateStore(file, baseUrl, maxAgeMillis, objectMapper);
+        try {
+            boolean replayed = store.replay();
+            // 末行不完整时必须重写，否则追加的新记录会接在残行之后，以后每次重放都在此处中断
+            if (!replayed || store.truncated
+                    || store.journalLines > Math.max(MIN_LINES_BEFORE_COMPACTION, 2 * store.liveLines())) {
+                store.compact();
+            }
+            store.journal = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open state file " + file, e);
+        }
+        return store;
+    }
+
+    /**
+     * Whether the data views of the space were read from Kibana recently enough to trust the state
+     */
+    public synchronized boolean isFresh(String space) {
+        SpaceState state = spaces.get(space);
+        return state != null && isRecent(state.verifiedAt);
+    }
+
+    /**
+     * Whether the space was checked or created recently enough to skip checking it again
+     */
+    public synchronized boolean isSpaceFresh(String space) {
+        SpaceState state = spaces.get(space);
+        return state != null && state.exists && isRecent(state.spaceVerifiedAt);
+    }
+
+    public synchronized boolean hasSpace(String space) {
+        SpaceState state = spaces.get(space);
+        return state != null && state.exists;
+    }
+
+    /**
+     * Recorded data views of the space as id to title, or null if they were never read
+     */
+    public synchronized Map<String, String> getDataViews(String space) {
+        SpaceState state = spaces.get(space);
+        return state != null && state.verifiedAt > 0 ? new LinkedHashMap<>(state.dataViews) : null;
+    }
+
+    /**
+     * Hash of the last role or user body written for the space, or null if none was
+     * written recently enough to trust it
+     */
+    public synchronized String getHash(String space, String kind) {
+        SpaceState state = spaces.get(space);
+        return state != null && isRecent(state.hashWrittenAt.getOrDefault(kind, 0L)) ? state.hashes.get(kind) : null;
+    }
+
+    /**
+     * Record that the space exists, as just checked or created
+     */
+    public synchronized void recordSpace(String space) {
+        append(entry("space", space).put("verifiedAt", System.currentTimeMillis()));
+    }
+
+    public synchronized void recordDataViews(String space, Map<String, String> dataViews) {
+        if (!dataViews.isEmpty()) {
+            ObjectNode entry = entry("views", space);
+            dataViews.forEach(entry.putObject("views")::put);
+            append(entry);
+        }
+    }
+
+    public synchronized void removeDataViews(String space, Collection<String> ids) {
+        if (!ids.isEmpty()) {
+            ObjectNode entry = entry("unviews", space);
+            ids.forEach(entry.putArray("ids")::add);
+            append(entry);
+        }
+    }
+
+    /**
+     * Replace the recorded data views with the ones just read from Kibana and mark the space verified
+     */
+    public synchronized void replaceDataViews(String space, Map<String, String> dataViews) {
+        append(resetEntry(space, dataViews, System.currentTimeMillis()));
+    }
+
+    /**
+     * Record the hash of a role or user body just written for the space
+     */
+    public synchronized void recordHash(String space, String kind, String hash) {
+        append(entry("hash", space).put("kind", kind).put("hash", hash).put("writtenAt", System.currentTimeMillis()));
+    }
+
+    /**
+     * Mark everything recorded for the space stale, e.g. after a failed write, so the next
+     * run checks the space, reads the data views and writes the role and user again
+     */
+    public synchronized void invalidate(String space) {
+        SpaceState state = spaces.get(space);
+        if (state != null && (state.verifiedAt > 0 || state.spaceVerifiedAt > 0 || !state.hashes.isEmpty())) {
+            append(entry("invalidate", space));
+        }
+    }
+
+    /**
+     * Short SHA-256 of a request body, used to detect role and user changes
+     */
+    public static String hash(String body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                hex.append(String.format("%02x", digest[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            if (journal != null) {
+                journal.close();
+                journal = null;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close state file " + file, e);
+        }
+    }
+
+    /**
+     * Apply the journal to the in-memory state; false if it is missing or belongs to another Kibana.
+     * Sets truncated when replay stopped at an incomplete line or the file does not end with a
+     * line break, as after an interrupted write.
+     */
+    private boolean replay() throws IOException {
+        if (!Files.exists(file)) {
+            return false;
+        }
+        truncated = !endsWithLineBreak();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            if (line == null) {
+                return false;
+            }
+            JsonNode header = objectMapper.readTree(line);
+            if (header.path("version").asInt() != VERSION || !baseUrl.equals(header.path("baseUrl").asText())) {
+                return false;
+            }
+            journalLines = 1;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode entry;
+                try {
+                    entry = objectMapper.readTree(line);
+                } catch (IOException e) {
+                    // 写入中断留下的不完整末行，忽略后续内容
+                    truncated = true;
+                    break;
+                }
+                apply(entry);
+                journalLines++;
+            }
+        }
+        return true;
+    }
+
+    private boolean endsWithLineBreak() throws IOException {
+        try (SeekableByteChannel channel = Files.newByteChannel(file)) {
+            if (channel.size() == 0) {
+                return true;
+            }
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.position(channel.size() - 1).read(last);
+            return last.get(0) == '\n';
+        }
+    }
+
+    private void apply(JsonNode entry) {
+        SpaceState state = spaces.computeIfAbsent(entry.path("space").asText(), key -> new SpaceState());
+        switch (entry.path("op").asText()) {
+            case "space":
+                // 旧日志中的记录没有时间戳，视为需要重新检查
+                state.exists = true;
+                state.spaceVerifiedAt = Math.max(state.spaceVerifiedAt, entry.path("verifiedAt").asLong());
+                break;
+            case "views":
+                for (Iterator<Map.Entry<String, JsonNode>> it = entry.path("views").fields(); it.hasNext(); ) {
+                    Map.Entry<String, JsonNode> view = it.next();
+                    state.dataViews.put(view.getKey(), view.getValue().asText());
+                }
+                break;
+            case "unviews":
+                for (JsonNode id : entry.path("ids")) {
+                    state.dataViews.remove(id.asText());
+                }
+                break;
+            case "reset":
+                state.exists = true;
+                state.dataViews.clear();
+                for (Iterator<Map.Entry<String, JsonNode>> it = entry.path("views").fields(); it.hasNext(); ) {
+                    Map.Entry<String, JsonNode> view = it.next();
+                    state.dataViews.put(view.getKey(), view.getValue().asText());
+                }
+                state.verifiedAt = entry.path("verifiedAt").asLong();
+                // 能读取空间中的数据视图，说明空间同时存在
+                state.spaceVerifiedAt = Math.max(state.spaceVerifiedAt, state.verifiedAt);
+                break;
+            case "hash":
+                state.hashes.put(entry.path("kind").asText(), entry.path("hash").asText());
+                state.hashWrittenAt.put(entry.path("kind").asText(), entry.path("writtenAt").asLong());
+                break;
+            case "invalidate":
+                state.verifiedAt = 0;
+                state.spaceVerifiedAt = 0;
+                state.hashes.clear();
+                state.hashWrittenAt.clear();
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void append(ObjectNode entry) {
+        apply(entry);
+        try {
+            journal.write(objectMapper.writeValueAsString(entry));
+            journal.newLine();
+            journal.flush();
+            journalLines++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write state file " + file, e);
+        }
+    }
+
+    /**
+     * Rewrite the journal as one header plus the minimal entries for the current state
+     */
+    private void compact() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tempFile = Files.createTempFile(parent, "state", ".tmp");
+        int lines = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            ObjectNode header = objectMapper.createObjectNode().put("version", VERSION).put("baseUrl", baseUrl);
+            writer.write(objectMapper.writeValueAsString(header));
+            writer.newLine();
+            lines++;
+            for (Map.Entry<String, SpaceState> space : spaces.entrySet()) {
+                SpaceState state = space.getValue();
+                if (state.verifiedAt > 0) {
+                    writer.write(objectMapper.writeValueAsString(resetEntry(space.getKey(), state.dataViews, state.verifiedAt)));
+                } else {
+                    ObjectNode views = entry("views", space.getKey());
+                    state.dataViews.forEach(views.putObject("views")::put);
+                    writer.write(objectMapper.writeValueAsString(views));
+                }
+                writer.newLine();
+                lines++;
+                if (state.exists) {
+                    writer.write(objectMapper.writeValueAsString(
+                            entry("space", space.getKey()).put("verifiedAt", state.spaceVerifiedAt)));
+                    writer.newLine();
+                    lines++;
+                }
+                for (Map.Entry<String, String> hash : state.hashes.entrySet()) {
+                    writer.write(objectMapper.writeValueAsString(
+                            entry("hash", space.getKey()).put("kind", hash.getKey()).put("hash", hash.getValue())
+                                    .put("writtenAt", state.hashWrittenAt.getOrDefault(hash.getKey(), 0L))));
+                    writer.newLine();
+                    lines++;
+                }
+            }
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        journalLines = lines;
+    }
+
+    private boolean isRecent(long verifiedAt) {
+        return verifiedAt > 0 && System.currentTimeMillis() - verifiedAt < maxAgeMillis;
+    }
+
+    private int liveLines() {
+        int lines = 1;
+        for (SpaceState state : spaces.values()) {
+            lines += 2 + state.hashes.size();
+        }
+        return lines;
+    }
+
+    private ObjectNode entry(String op, String space) {
+        return objectMapper.createObjectNode().put("op", op).put("space", space);
+    }
+
+    private ObjectNode resetEntry(String space, Map<String, String> dataViews, long verifiedAt) {
+        ObjectNode entry = entry("reset", space);
+        dataViews.forEach(entry.putObject("views")::put);
+        entry.put("verifiedAt", verifiedAt);
+        return entry;
+    }
+
+    /**
+     * What is known about one space
+     */
+    private static final class SpaceState {
+        private final Map<String, String> dataViews = new LinkedHashMap<>();
+        private final Map<String, String> hashes = new HashMap<>();
+        private final Map<String, Long> hashWrittenAt = new HashMap<>();
+        private boolean exists;
+        private long spaceVerifiedAt;
+        private long verifiedAt;
+    }
+}
@@ -0,0 +1,94 @@
+package io.github.devops;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Writes human-readable messages through a buffered writer.
+ *
+ * Unless auto-flush is enabled, output is only flushed on warnings, on {@link #flush()}
+ * and on close, so large verbose runs do not pay for a console write per line.
+ */
+public class TextReporter implements Reporter {
+    private final Level level;
+    private final Writer writer;
+    private final boolean ownsWriter;
+    private final boolean autoFlush;
+
+    /**
+     * @param ownsWriter whether closing the reporter closes the writer, false for standard output
+     * @param autoFlush  flush after every line, for reporters that may never be closed
+     */
+    public TextReporter(Level level, Writer writer, boolean ownsWriter, boolean autoFlush) {
+        this.level = level;
+        this.writer = writer;
+        this.ownsWriter = ownsWriter;
+        this.autoFlush = autoFlush;
+    }
+
+    @Override
+    public boolean isEnabled(Level level) {
+        return this.level.compareTo(level) >= 0;
+    }
+
+    @Override
+    public void summary(String message) {
+        if (isEnabled(Level.SUMMARY)) {
+            write(message);
+        }
+    }
+
+    @Override
+    public void detail(String message) {
+        if (isEnabled(Level.VERBOSE)) {
+            write(message);
+        }
+    }
+
+    @Override
+    public void warn(String message) {
+        write(message);
+        flush();
+    }
+
+    @Override
+    public void record(Level level, String type, Map<String, ?> fields) {
+        // 文本输出只包含可读信息
+    }
+
+    @Override
+    public synchronized void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            if (ownsWriter) {
+                writer.close();
+            } else {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private synchronized void write(String message) {
+        try {
+            writer.write(message);
+            writer.write(System.lineSeparator());
+            if (autoFlush) {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package io.github.devops;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Property tests: {@link BaseNameExtractor#defaults()} must produce exactly what the
+ * original chain of seven {@code replaceAll} calls produced, for any index name.
+ */
+class BaseNameExtractorTest {
+    private static final int SAMPLES = 200_000;
+    private static final String NAME_CHARS = "abcxyzABCXYZ0123456789-_.";
+    private static final String[] SEPARATORS = {"-", "_", ".", ""};
+
+    private final BaseNameExtractor extractor = BaseNameExtractor.defaults();
+
+    /**
+     * The regex chain that BaseNameExtractor replaced, kept verbatim as the reference
+     */
+    private static String legacyExtract(String index) {
+        String baseName = index;
+        baseName = baseName.replaceAll("-\\d{4}\\.\\d{2}\\.\\d{2}.*$", "");  // -yyyy.MM.dd
+        baseName = baseName.replaceAll("-\\d{4}-\\d{2}-\\d{2}.*$", "");     // -yyyy-MM-dd
+        baseName = baseName.replaceAll("_\\d{4}\\.\\d{2}\\.\\d{2}.*$", ""); // _yyyy.MM.dd
+        baseName = baseName.replaceAll("_\\d{4}-\\d{2}-\\d{2}.*$", "");     // _yyyy-MM-dd
+        baseName = baseName.replaceAll("\\.\\d{4}\\.\\d{2}\\.\\d{2}.*$", ""); // .yyyy.MM.dd
+        baseName = baseName.replaceAll("\\d{4}\\.\\d{2}\\.\\d{2}$", "");    // yyyy.MM.dd at end
+        baseName = baseName.replaceAll("\\d{4}-\\d{2}-\\d{2}$", "");       // yyyy-MM-dd at end
+        return baseName.toLowerCase();
+    }
+
+    @Test
+    void knownNames() {
+        for (String index : List.of(
+                "logs-app", "logs-app-2024.01.15", "logs-app-2024-01-15", "logs_app_2024.01.15",
+                "logs.app.2024.01.15", "logs-app2024.01.15", "logs-app-2024.01.15-000001",
+                "app-2024.01.15-2024.01.16", "app-2024.01.15.extra", "2024.01.15", "-2024.01.15",
+                "app-2024.1.15", "app-24.01.15", "App-Name_2024-01-15", "app-2024.01.15x2024-01-16",
+                "")) {
+            assertEquals(legacyExtract(index), extractor.extract(index), index);
+        }
+    }
+
+    @Test
+    void namesWithoutSuffix() {
+        Random random = new Random(1);
+        for (int i = 0; i < SAMPLES; i++) {
+            String index = randomText(random, 1 + random.nextInt(30));
+            assertEquals(legacyExtract(index), extractor.extract(index), index);
+        }
+    }
+
+    @Test
+    void namesWithSeveralSuffixes() {
+        Random random = new Random(2);
+        for (int i = 0; i < SAMPLES; i++) {
+            StringBuilder index = new StringBuilder(randomText(random, 1 + random.nextInt(12)));
+            int suffixes = 1 + random.nextInt(3);
+            for (int s = 0; s < suffixes; s++) {
+                index.append(randomDate(random));
+                if (random.nextBoolean()) {
+                    index.append(randomText(random, random.nextInt(8)));
+                }
+            }
+            assertEquals(legacyExtract(index.toString()), extractor.extract(index.toString()), index::toString);
+        }
+    }
+
+    @Test
+    void suffixLikeTextInTheMiddle() {
+        Random random = new Random(3);
+        for (int i = 0; i < SAMPLES; i++) {
+            // 日期出现在名称中间，或是位数/分隔符不完全匹配的近似日期
+            String index = randomText(random, random.nextInt(10))
+                    + (random.nextBoolean() ? randomDate(random) : randomNearDate(random))
+                    + randomText(random, 1 + random.nextInt(10))
+                    + (random.nextInt(4) == 0 ? randomNearDate(random) : "");
+            assertEquals(legacyExtract(index), extractor.extract(index), index);
+        }
+    }
+
+    @Test
+    void emptyFormatIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new BaseNameExtractor(List.of("*")));
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append(NAME_CHARS.charAt(random.nextInt(NAME_CHARS.length())));
+        }
+        return text.toString();
+    }
+
+    /**
+     * A date in one of the default formats, with any of the separators in front
+     */
+    private static String randomDate(Random random) {
+        String separator = random.nextBoolean() ? "." : "-";
+        return SEPARATORS[random.nextInt(SEPARATORS.length)]
+                + digits(random, 4) + separator + digits(random, 2) + separator + digits(random, 2);
+    }
+
+    /**
+     * Almost a date: a group with a digit too few or too many, or mixed separators
+     */
+    private static String randomNearDate(Random random) {
+        int[] lengths = {4, 2, 2};
+        lengths[random.nextInt(3)] += random.nextBoolean() ? 1 : -1;
+        String first = random.nextBoolean() ? "." : "-";
+        String second = random.nextInt(3) == 0 ? (first.equals(".") ? "-" : ".") : first;
+        return SEPARATORS[random.nextInt(SEPARATORS.length)]
+                + digits(random, lengths[0]) + first + digits(random, lengths[1]) + second + digits(random, lengths[2]);
+    }
+
+    private static String digits(Random random, int count) {
+        StringBuilder digits = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            digits.append((char) ('0' + random.nextInt(10)));
+        }
+        return digits.toString();
+    }
+}